@@ -0,0 +1,54 @@
+#!/bin/sh
+# Builds build/babylang.jar and a startup archive for it.
+#
+# A training run (TrainingRun) loads the scanner, parsers and printers, and
+# the JVM dumps what it loaded at exit:
+#   - JDK 25 and later: an AOT cache (build/babylang.aot)
+#   - older JDKs: a dynamic AppCDS archive (build/babylang.jsa)
+#
+# With --jlink a minimal runtime image holding only java.base and the
+# BabyLang module is linked into build/image as well.
+set -e
+
+cd "$(dirname "$0")/.."
+BUILD=build
+
+rm -rf "$BUILD/classes" "$BUILD/babylang.jar" "$BUILD/babylang.jsa" "$BUILD/babylang.aot"
+mkdir -p "$BUILD/classes"
+
+javac -d "$BUILD/classes" $(find src -name '*.java')
+jar --create --file "$BUILD/babylang.jar" \
+	--main-class com.craftinginterpreter.babylang.BabyLang -C "$BUILD/classes" .
+
+FEATURE=$(java -XshowSettings:properties -version 2>&1 \
+	| sed -n 's/^ *java.specification.version = //p')
+
+if [ "${FEATURE%%.*}" -ge 25 ]; then
+	java -XX:AOTCacheOutput="$BUILD/babylang.aot" -cp "$BUILD/babylang.jar" \
+		com.craftinginterpreter.babylang.TrainingRun
+	echo "wrote $BUILD/babylang.aot"
+else
+	java -XX:ArchiveClassesAtExit="$BUILD/babylang.jsa" -cp "$BUILD/babylang.jar" \
+		com.craftinginterpreter.babylang.TrainingRun
+	echo "wrote $BUILD/babylang.jsa"
+fi
+
+if [ "$1" = "--jlink" ]; then
+	rm -rf "$BUILD/image"
+	jlink --module-path "$BUILD/babylang.jar" --add-modules BabyLang \
+		--launcher babylang=BabyLang/com.craftinginterpreter.babylang.BabyLang \
+		--strip-debug --no-header-files --no-man-pages \
+		--output "$BUILD/image"
+
+	# the image needs its own base archive before a dynamic one can be layered on it
+	"$BUILD/image/bin/java" -Xshare:dump > /dev/null
+	"$BUILD/image/bin/java" -XX:ArchiveClassesAtExit="$BUILD/image/lib/babylang.jsa" \
+		-m BabyLang/com.craftinginterpreter.babylang.TrainingRun
+	cat > "$BUILD/image/bin/babylang" <<'LAUNCHER'
+#!/bin/sh
+DIR=`dirname $0`
+exec "$DIR/java" -XX:SharedArchiveFile="$DIR/../lib/babylang.jsa" -XX:TieredStopAtLevel=1 -XX:+UseSerialGC \
+	-m BabyLang/com.craftinginterpreter.babylang.BabyLang "$@"
+LAUNCHER
+	echo "wrote $BUILD/image"
+fi
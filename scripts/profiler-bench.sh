@@ -0,0 +1,21 @@
+#!/bin/sh
+# Compares running a script with profiling off and on, each in a fresh JVM,
+# and checks that no profiler class is loaded when profiling is off.
+#
+# usage: profiler-bench.sh [fib | deep | script] [runs]
+set -e
+
+cd "$(dirname "$0")/.."
+CLASSES=build/classes
+MAIN=com.craftinginterpreter.babylang.ProfilerBenchmark
+
+rm -rf "$CLASSES"
+mkdir -p "$CLASSES"
+javac -d "$CLASSES" $(find src -name '*.java')
+
+java -cp "$CLASSES" $MAIN off "$@"
+java -cp "$CLASSES" $MAIN on "$@"
+
+LOADED=$(java -verbose:class -cp "$CLASSES" $MAIN off "$@" \
+	| grep -c -E 'babylang\.(ProfilingInterpreter|ExecutionProfile)' || true)
+echo "profiler classes loaded with profiling off: $LOADED"
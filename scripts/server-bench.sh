@@ -0,0 +1,30 @@
+#!/bin/sh
+# Starts the evaluation server on a Unix-domain socket and on a TCP port,
+# drives both with EvalClient, without and with pipelining, and stops it.
+#
+# usage: server-bench.sh [connections] [requests per connection]
+set -e
+
+cd "$(dirname "$0")/.."
+CLASSES=build/classes
+PACKAGE=com.craftinginterpreter.babylang
+SOCKET=build/babylang.sock
+PORT=7777
+CONNECTIONS=${1:-8}
+REQUESTS=${2:-2000}
+
+rm -rf "$CLASSES"
+mkdir -p "$CLASSES"
+javac -d "$CLASSES" $(find src -name '*.java')
+
+java -cp "$CLASSES" $PACKAGE.BabyLang --serve "unix:$SOCKET" &
+UNIX_SERVER=$!
+java -cp "$CLASSES" $PACKAGE.BabyLang --serve $PORT &
+TCP_SERVER=$!
+trap 'kill $UNIX_SERVER $TCP_SERVER' EXIT
+sleep 2
+
+for ADDRESS in "unix:$SOCKET" $PORT; do
+	java -cp "$CLASSES" $PACKAGE.EvalClient "$ADDRESS" "$CONNECTIONS" "$REQUESTS" 1
+	java -cp "$CLASSES" $PACKAGE.EvalClient "$ADDRESS" "$CONNECTIONS" "$REQUESTS" 16
+done
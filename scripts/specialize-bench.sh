@@ -0,0 +1,23 @@
+#!/bin/sh
+# Compares running a script on the generic and the specializing interpreter,
+# each in a fresh JVM, first with the JIT and then interpreted only (-Xint),
+# where the JIT's own type profiling does not hide what the fast paths save.
+#
+# usage: specialize-bench.sh [fib | arith | flip | script] [runs]
+set -e
+
+cd "$(dirname "$0")/.."
+CLASSES=build/classes
+MAIN=com.craftinginterpreter.babylang.SpecializeBenchmark
+
+rm -rf "$CLASSES"
+mkdir -p "$CLASSES"
+javac -d "$CLASSES" $(find src -name '*.java')
+
+java -cp "$CLASSES" $MAIN generic "$@"
+java -cp "$CLASSES" $MAIN specialize "$@"
+
+SCRIPT=${1:-fib}
+echo "interpreted only, 3 runs:"
+java -Xint -cp "$CLASSES" $MAIN generic "$SCRIPT" 3
+java -Xint -cp "$CLASSES" $MAIN specialize "$SCRIPT" 3
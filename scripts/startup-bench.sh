@@ -0,0 +1,45 @@
+#!/bin/sh
+# Compares cold launch time of a BabyLang run without and with the startup
+# archive (and the jlink image, when build-cds.sh --jlink made one).
+# Run build-cds.sh first.
+#
+# usage: startup-bench.sh [runs] [script]
+set -e
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-20}
+SCRIPT=${2:-src/testing/hello.txt}
+JAR=build/babylang.jar
+
+if [ -f build/babylang.aot ]; then
+	ARCHIVE="-XX:AOTCache=build/babylang.aot"
+else
+	ARCHIVE="-XX:SharedArchiveFile=build/babylang.jsa"
+fi
+
+measure() {
+	label=$1
+	shift
+	total=0
+	best=
+	i=0
+	while [ $i -lt "$RUNS" ]; do
+		start=$(date +%s%N)
+		"$@" "$SCRIPT" > /dev/null
+		end=$(date +%s%N)
+		elapsed=$(( (end - start) / 1000000 ))
+		total=$((total + elapsed))
+		if [ -z "$best" ] || [ "$elapsed" -lt "$best" ]; then best=$elapsed; fi
+		i=$((i + 1))
+	done
+	printf '%-24s mean %5d ms   best %5d ms\n' "$label" $((total / RUNS)) "$best"
+}
+
+MAIN=com.craftinginterpreter.babylang.BabyLang
+measure "default" java -cp "$JAR" $MAIN
+measure "tuned, no archive" java -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -cp "$JAR" $MAIN
+measure "tuned + archive" java $ARCHIVE -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -cp "$JAR" $MAIN
+
+if [ -x build/image/bin/babylang ]; then
+	measure "jlink image + archive" build/image/bin/babylang
+fi
@@ -1,74 +1,200 @@
 package com.craftinginterpreter.babylang;
 
+import java.io.IOException;
+import java.util.List;
+
 import com.craftinginterpreter.babylang.Expr.*;
 import com.craftinginterpreter.babylang.TokenType.*;
 
-class AstPrinter implements Expr.Visitor<String> {
+class AstPrinter extends StreamingPrinter implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 	String print(Expr expr) {
-		return expr.accept(this);
+		return print((Object)expr);
+	}
+	
+	String print(Stmt stmt) {
+		return print((Object)stmt);
+	}
+	
+	String print(List<Stmt> statements) {
+		return print((Object)statements);
+	}
+	
+	void print(Expr expr, Appendable out) throws IOException {
+		print((Object)expr, out);
+	}
+	
+	void print(List<Stmt> statements, Appendable out) throws IOException {
+		print((Object)statements, out);
 	}
 	
 	@Override
-	public String visitConditional(Conditional expr) {
-		return parenthesizeConditional(expr.expression, expr.thenStatement, expr.elseStatement);
+	void expand(Object node) {
+		if (node instanceof Expr) {
+			((Expr)node).accept(this);
+		} else if (node instanceof Stmt) {
+			((Stmt)node).accept(this);
+		} else {
+			List<?> statements = (List<?>)node;
+			for (int i = statements.size() - 1; i >= 0; i--) {
+				emit(statements.get(i), "\n");
+			}
+		}
 	}
-
+	
 	@Override
-	public String visitBinary(Binary expr) {
-		return parenthesize(expr.operator.getLexeme(), expr.left, expr.right);
+	public Void visitConditional(Conditional expr) {
+		emit("(", expr.expression, ")?(", expr.thenStatement, "):(", expr.elseStatement, ")");
+		return null;
 	}
 
 	@Override
-	public String visitGrouping(Grouping expr) {
-		return parenthesize("group", expr.expression);
+	public Void visitAssign(Assign expr) {
+		emit("(= ", expr.name.getLexeme(), " ", expr.value, ")");
+		return null;
 	}
 
 	@Override
-	public String visitLiteral(Literal expr) {
-		if (expr.value == null) return "nil";
-		return expr.value.toString();
+	public Void visitBinary(Binary expr) {
+		parenthesize(expr.operator.getLexeme(), expr.left, expr.right);
+		return null;
 	}
 
 	@Override
-	public String visitUnary(Unary expr) {
-		return parenthesize(expr.operator.getLexeme(), expr.right);
-	}
-	
-	private String parenthesizeConditional(Expr...exprs) {
-		StringBuilder builder = new StringBuilder();
-		
-		String symbols[] = {"?", ":", ""};
+	public Void visitCall(Call expr) {
+		Object pieces[] = new Object[expr.arguments.size() * 2 + 3];
 		int pos = 0;
 		
-		for (Expr expr : exprs) {
-			builder.append("(").append(expr.accept(this)).append(")");
-			builder.append(symbols[pos++]);
+		pieces[pos++] = "(call ";
+		pieces[pos++] = expr.callee;
+		for (Expr argument : expr.arguments) {
+			pieces[pos++] = " ";
+			pieces[pos++] = argument;
 		}
+		pieces[pos++] = ")";
 		
-		return builder.toString();
+		emit(pieces);
+		return null;
 	}
 
-	private String parenthesize(String name, Expr...exprs) {
-		StringBuilder builder = new StringBuilder();
+	@Override
+	public Void visitGrouping(Grouping expr) {
+		parenthesize("group", expr.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitLiteral(Literal expr) {
+		emit(expr.value == null ? "nil" : expr.value.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitUnary(Unary expr) {
+		parenthesize(expr.operator.getLexeme(), expr.right);
+		return null;
+	}
+
+	@Override
+	public Void visitVariable(Variable expr) {
+		emit(expr.name.getLexeme());
+		return null;
+	}
+
+	@Override
+	public Void visitBlock(Stmt.Block stmt) {
+		emit(")");
+		for (int i = stmt.statements.size() - 1; i >= 0; i--) {
+			emit(" ", stmt.statements.get(i));
+		}
+		emit("(block");
+		return null;
+	}
+
+	@Override
+	public Void visitExpression(Stmt.Expression stmt) {
+		parenthesize(";", stmt.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitFunction(Stmt.Function stmt) {
+		emit(")");
+		for (int i = stmt.body.size() - 1; i >= 0; i--) {
+			emit(" ", stmt.body.get(i));
+		}
 		
-		builder.append("(").append(name);
-		for (Expr expr : exprs) {
-			builder.append(" ");
-			builder.append(expr.accept(this));
+		StringBuilder builder = new StringBuilder();
+		builder.append("(fun ").append(stmt.name.getLexeme()).append("(");
+		for (Token param : stmt.params) {
+			if (param != stmt.params.get(0)) builder.append(" ");
+			builder.append(param.getLexeme());
 		}
 		builder.append(")");
 		
-		return builder.toString();
+		emit(builder.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitIf(Stmt.If stmt) {
+		if (stmt.elseBranch == null) {
+			emit("(if ", stmt.condition, " ", stmt.thenBranch, ")");
+		} else {
+			emit("(if-else ", stmt.condition, " ", stmt.thenBranch, " ", stmt.elseBranch, ")");
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitPrint(Stmt.Print stmt) {
+		parenthesize("print", stmt.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitReturn(Stmt.Return stmt) {
+		if (stmt.value == null) {
+			emit("(return)");
+		} else {
+			parenthesize("return", stmt.value);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitVar(Stmt.Var stmt) {
+		if (stmt.initializer == null) {
+			emit("(var ", stmt.name.getLexeme(), ")");
+		} else {
+			emit("(var ", stmt.name.getLexeme(), " = ", stmt.initializer, ")");
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitWhile(Stmt.While stmt) {
+		emit("(while ", stmt.condition, " ", stmt.body, ")");
+		return null;
+	}
+
+	private void parenthesize(String name, Expr...exprs) {
+		emit(")");
+		for (int i = exprs.length - 1; i >= 0; i--) {
+			emit(" ", exprs[i]);
+		}
+		emit("(", name);
 	}
 	
 	public static void main(String args[]) {
 		Expr expression = new Binary(
 		        new Unary(
 		            new Token(TokenType.MINUS, "-", null, 1),
-		            new Literal(123)),
+		            new Literal(123),
+		            0),
 		        new Token(TokenType.STAR, "*", null, 1),
 		        new Grouping(
-		            new Literal(45.67)));
+		            new Literal(45.67)),
+		        1);
 
 		System.out.println(new AstPrinter().print(expression));
 	}	
@@ -5,32 +5,89 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 
+import com.craftinginterpreter.babylang.TokenType.LineMap;
 import com.craftinginterpreter.babylang.TokenType.Token;
 import com.craftinginterpreter.babylang.TokenType.TokenType;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 public class BabyLang {
 	static boolean hadError = false;
+	static boolean hadRuntimeError = false;
+	
+	// how the source is handled: print a single expression, print a program
+	// of declarations, or run the program
+	private enum Mode { EXPRESSION, PROGRAM, PARALLEL, PIPELINE, RUN, SPECIALIZE, PROFILE }
+	private static Mode mode = Mode.EXPRESSION;
+	
+	// where --profile writes collapsed stacks, next to the script
+	private static String collapsedPath = null;
 	
 	public static void main(String args[]) throws IOException {
-		if (args.length > 1) {
-			System.out.println("Usage: babylang [script]");
+		if (args.length == 2 && args[0].equals("--serve")) {
+			serve(args[1]);
+			return;
+		}
+		
+		int argc = args.length;
+		if (argc > 0 && args[0].equals("--program")) {
+			mode = Mode.PROGRAM;
+			argc--;
+		} else if (argc > 0 && args[0].equals("--parallel")) {
+			mode = Mode.PARALLEL;
+			argc--;
+		} else if (argc > 0 && args[0].equals("--pipeline")) {
+			mode = Mode.PIPELINE;
+			argc--;
+		} else if (argc > 0 && args[0].equals("--run")) {
+			mode = Mode.RUN;
+			argc--;
+		} else if (argc > 0 && args[0].equals("--specialize")) {
+			mode = Mode.SPECIALIZE;
+			argc--;
+		} else if (argc > 0 && args[0].equals("--profile")) {
+			mode = Mode.PROFILE;
+			argc--;
+		}
+		
+		if (argc > 1) {
+			System.out.println("Usage: babylang [--program | --parallel | --pipeline | --run | --specialize | --profile] [script]");
+			System.out.println("       babylang --serve <port | host:port | unix:path>");
 			System.exit(64);
-		} else if (args.length == 1) {
-			runFile(args[0]);
+		} else if (argc == 1) {
+			runFile(args[args.length - 1]);
 		} else {
 			runPrompt();
 		}
 	}
 	
+	// runs the evaluation server until the process is stopped, see EvalServer
+	private static void serve(String address) throws IOException {
+		EvalServer server = new EvalServer(address, ExecutionLimits.DEFAULT);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				server.close();
+			} catch (IOException e) {
+				// exiting anyway
+			}
+		}));
+		
+		System.err.println("Listening on " + address);
+		server.serve();
+	}
+	
 	private static void runFile(String path) throws IOException {
 		byte[] bytes = Files.readAllBytes(Paths.get(path));
+		collapsedPath = path + ".collapsed";
 		run(new String(bytes, Charset.defaultCharset()));
 		
 		if (hadError) System.exit(65);
+		if (hadRuntimeError) System.exit(70);
 	}
 
 	private static void runPrompt() throws IOException {
@@ -47,10 +104,23 @@ public class BabyLang {
 		}
 	}
 	
-	private static void run(String source) {
+	private static void run(String source) throws IOException {
+		if (mode == Mode.PIPELINE) {
+			print(Pipeline.parseProgram(source));
+			return;
+		}
+		
 		Scanner scanner = new Scanner(source);
 		List<Token> tokens = scanner.scanTokens();
 		
+		if (mode == Mode.RUN || mode == Mode.SPECIALIZE || mode == Mode.PROFILE) {
+			execute(tokens);
+			return;
+		} else if (mode != Mode.EXPRESSION) {
+			runProgram(tokens);
+			return;
+		}
+		
 		for (Token token : tokens) {
 			System.out.println(token.getType() + " " + token.getLexeme() + " " + token.getLine());
 		}
@@ -63,21 +133,92 @@ public class BabyLang {
 		System.out.println(new AstPrinter().print(expression));
 	}
 	
-	static void error(int line, String message) {
-		report(line, "", message);
+	private static void runProgram(List<Token> tokens) throws IOException {
+		List<Stmt> statements = mode == Mode.PARALLEL
+				? new ParallelParser(tokens).parse()
+				: new Parser(tokens).parseProgram();
+		print(statements);
+	}
+	
+	private static void print(List<Stmt> statements) throws IOException {
+		if (hadError) return;
+		
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()));
+		new AstPrinter().print(statements, out);
+		out.flush();
+	}
+	
+	private static void execute(List<Token> tokens) throws IOException {
+		List<Stmt> statements = new Parser(tokens).parseProgram();
+		
+		if (hadError) return;
+		
+		if (mode == Mode.SPECIALIZE) {
+			SpecializingInterpreter interpreter = new SpecializingInterpreter();
+			interpreter.interpret(statements);
+			interpreter.report(System.err);
+		} else if (mode == Mode.PROFILE) {
+			ExecutionProfile profile = new ExecutionProfile();
+			ProfilingInterpreter interpreter = new ProfilingInterpreter(profile);
+			interpreter.interpret(statements);
+			profile.report(System.err, 20);
+			
+			if (collapsedPath != null) {
+				try (Writer out = Files.newBufferedWriter(Paths.get(collapsedPath))) {
+					interpreter.writeCollapsed(out);
+				}
+				System.err.println("collapsed stacks written to " + collapsedPath);
+			}
+		} else {
+			new Interpreter().interpret(statements);
+		}
+	}
+	
+	static void error(LineMap lines, int offset, String message) {
+		System.err.println(format(lines, offset, "", message));
+		hadError = true;
 	}
 	
 	static void error(Token token, String message) {
+		System.err.println(format(token, message));
+		hadError = true;
+	}
+	
+	static void runtimeError(RuntimeError error) {
+		System.err.println(format(error));
+		hadRuntimeError = true;
+	}
+	
+	static String format(Token token, String message) {
 	    if (token.getType() == TokenType.EOF) {
-	      report(token.getLine(), " at end", message);
+	      return format(token.getLines(), token.getStart(), " at end", message);
 	    } else {
-	      report(token.getLine(), " at '" + token.getLexeme() + "'", message);
+	      return format(token.getLines(), token.getStart(), " at '" + token.getLexeme() + "'", message);
 	    }
 	}
 	
-	private static void report(int line, String where, String message) {
-		System.err.println(
-		        "[line " + line + "] Error" + where + ": " + message);
-		hadError = true;
+	static String format(RuntimeError error) {
+		Token token = error.token;
+		return error.getMessage() +
+				"\n[line " + token.getLine() + ":" + token.getColumn() + "]";
+	}
+	
+	// the offending source line follows the message, with a caret under the column
+	static String format(LineMap lines, int offset, String where, String message) {
+		int line = lines.lineOf(offset);
+		int column = lines.columnOf(offset);
+		String text = lines.lineText(line);
+		
+		StringBuilder caret = new StringBuilder();
+		for (int i = 1; i < column && i <= text.length(); i++) {
+			caret.append(text.charAt(i - 1) == '\t' ? '\t' : ' ');
+		}
+		caret.append('^');
+		
+		String result = "[line " + line + ":" + column + "] Error" + where + ": " + message;
+		if (!text.isEmpty()) {
+			result += "\n    " + text + "\n    " + caret;
+		}
+		return result;
 	}
 }
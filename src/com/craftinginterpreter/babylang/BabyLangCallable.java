@@ -0,0 +1,8 @@
+package com.craftinginterpreter.babylang;
+
+import java.util.List;
+
+interface BabyLangCallable {
+	int arity();
+	Object call(Interpreter interpreter, List<Object> arguments);
+}
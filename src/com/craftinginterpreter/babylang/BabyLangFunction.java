@@ -0,0 +1,39 @@
+package com.craftinginterpreter.babylang;
+
+import java.util.List;
+
+class BabyLangFunction implements BabyLangCallable {
+	private final Stmt.Function declaration;
+	private final Environment closure;
+	
+	BabyLangFunction(Stmt.Function declaration, Environment closure) {
+		this.declaration = declaration;
+		this.closure = closure;
+	}
+	
+	@Override
+	public int arity() {
+		return declaration.params.size();
+	}
+	
+	@Override
+	public Object call(Interpreter interpreter, List<Object> arguments) {
+		Environment environment = new Environment(closure);
+		for (int i = 0; i < declaration.params.size(); i++) {
+			environment.define(declaration.params.get(i).getLexeme(), arguments.get(i));
+		}
+		
+		try {
+			interpreter.executeCall(declaration.body, environment);
+		} catch (Return returnValue) {
+			return returnValue.value;
+		}
+		
+		return null;
+	}
+	
+	@Override
+	public String toString() {
+		return "<fn " + declaration.name.getLexeme() + ">";
+	}
+}
@@ -0,0 +1,70 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Interpreter that charges every evaluate() and execute() to an
+ * ExecutionContext: one step each, which bounds loops, and one level of
+ * nesting while it runs. Nesting counts within the current function body
+ * only (a left-leaning chain like 1 + 1 + ... nests deeper than the parser
+ * saw), and every function call is one level of call depth instead, which
+ * bounds recursion. Strings built by '+' are checked against the string
+ * limit before they can double their way through the heap. Runtime errors
+ * go to the context instead of System.err.
+ */
+class BoundedInterpreter extends Interpreter {
+	private final ExecutionContext context;
+	
+	BoundedInterpreter(ExecutionContext context, PrintStream out) {
+		super(out);
+		this.context = context;
+	}
+	
+	@Override
+	Object evaluate(Expr expr) {
+		context.step();
+		context.enter();
+		try {
+			return super.evaluate(expr);
+		} finally {
+			context.exit();
+		}
+	}
+	
+	@Override
+	void execute(Stmt stmt) {
+		context.step();
+		context.enter();
+		try {
+			super.execute(stmt);
+		} finally {
+			context.exit();
+		}
+	}
+	
+	@Override
+	void executeCall(List<Stmt> body, Environment environment) {
+		int outer = context.enterCall();
+		try {
+			super.executeCall(body, environment);
+		} finally {
+			context.exitCall(outer);
+		}
+	}
+	
+	@Override
+	Object binary(Token operator, Object left, Object right) {
+		if (operator.getType() == TokenType.PLUS && left instanceof String && right instanceof String) {
+			context.checkString(((String)left).length() + ((String)right).length());
+		}
+		return super.binary(operator, left, right);
+	}
+	
+	@Override
+	void report(RuntimeError error) {
+		context.runtimeError(BabyLang.format(error));
+	}
+}
@@ -0,0 +1,661 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Checks that every alternative path agrees with the reference one on
+ * random sources from ProgramGenerator, well-formed and malformed:
+ *
+ *   tokens  Scanner.scanTokens()               against the pipelined and bounded scanners
+ *   syntax  Parser + AstPrinter                against the parallel, pipelined, lazy and bounded parsers
+ *   run     Interpreter                        against the specializing, profiling and bounded ones
+ *
+ * Token streams, printed trees, program output and diagnostics are
+ * compared. Programs are only run when they were generated well-formed,
+ * since a mutation can turn a loop into an endless one. A failing source
+ * is shrunk, token spans first and then characters, to a minimal one that
+ * still fails on the same path.
+ *
+ * The time each path takes is recorded too. --record writes it to a file
+ * and --baseline compares against such a file, flagging paths that got
+ * slower by more than --tolerance.
+ *
+ * options:
+ *   --cases=N        how many sources to generate
+ *   --statements=N   top-level statements per source
+ *   --malformed=P    chance of a source being malformed
+ *   --seed=N         seed for the generator, the same seed gives the same sources
+ *   --record=FILE    write the throughput of each path
+ *   --baseline=FILE  flag paths slower than in FILE
+ *   --tolerance=P    how much slower is still fine, 0.25 by default
+ *
+ * Exits with 1 when a path disagrees or got slower.
+ */
+class DifferentialHarness {
+	// how a path's diagnostics must relate to the reference's
+	private enum Diagnostics {
+		// the same ones in the same order
+		SAME,
+		// the same ones in any order, for paths that report from several threads
+		UNORDERED,
+		// errors exactly when the reference has them and the same first one in the source,
+		// for paths that recover from errors differently: the parallel parser, and the lazy
+		// one, where an error in a deferred group no longer ends the statement around it
+		FIRST
+	}
+	
+	private enum Stage { TOKENS, SYNTAX, RUN }
+	
+	private static class Outcome {
+		final String text;
+		final List<String> diagnostics;
+		
+		Outcome(String text, List<String> diagnostics) {
+			this.text = text;
+			this.diagnostics = diagnostics;
+		}
+	}
+	
+	private static class Path {
+		final String name;
+		final Stage stage;
+		final Diagnostics diagnostics;
+		final Function<String, Outcome> run;
+		long nanos = 0;
+		long chars = 0;
+		
+		Path(String name, Stage stage, Diagnostics diagnostics, Function<String, Outcome> run) {
+			this.name = name;
+			this.stage = stage;
+			this.diagnostics = diagnostics;
+			this.run = run;
+		}
+		
+		Outcome time(String source) {
+			long start = System.nanoTime();
+			try {
+				return run.apply(source);
+			} finally {
+				nanos += System.nanoTime() - start;
+				chars += source.length();
+			}
+		}
+	}
+	
+	// System.err while the harness runs, where BabyLang reports diagnostics
+	private static final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+	
+	// what a shrunk program may take before it is taken to be endless
+	private static final ExecutionLimits SHRINKING = new ExecutionLimits(
+			Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+			1_000_000, 1 << 20, 1 << 20, 1 << 16);
+	
+	private final List<Path> references = new ArrayList<>();
+	private final List<Path> paths = new ArrayList<>();
+	private int failures = 0;
+	
+	// well-formed sources the reference parser rejected, a bug in ProgramGenerator
+	private int unparsed = 0;
+	
+	DifferentialHarness() {
+		references.add(new Path("scanner", Stage.TOKENS, Diagnostics.SAME, DifferentialHarness::tokens));
+		references.add(new Path("parser", Stage.SYNTAX, Diagnostics.SAME, source -> syntax(new Scanner(source).scanTokens(), false)));
+		references.add(new Path("interpreter", Stage.RUN, Diagnostics.SAME, source -> run(source, Interpreter::new)));
+		
+		paths.add(new Path("pipelined scanner", Stage.TOKENS, Diagnostics.SAME, DifferentialHarness::pipelinedTokens));
+		paths.add(new Path("bounded scanner", Stage.TOKENS, Diagnostics.SAME, DifferentialHarness::boundedTokens));
+		
+		// a small threshold, so even short sources are split
+		paths.add(new Path("parallel parser", Stage.SYNTAX, Diagnostics.FIRST, source -> {
+			List<Stmt> statements = new ParallelParser(new Scanner(source).scanTokens(), 8).parse();
+			return print(statements, diagnostics());
+		}));
+		paths.add(new Path("pipelined parser", Stage.SYNTAX, Diagnostics.UNORDERED, source -> {
+			List<Stmt> statements = Pipeline.parseProgram(source);
+			return print(statements, diagnostics());
+		}));
+		paths.add(new Path("lazy parser", Stage.SYNTAX, Diagnostics.FIRST, source -> syntax(new Scanner(source).scanTokens(), true)));
+		paths.add(new Path("bounded parser", Stage.SYNTAX, Diagnostics.SAME, DifferentialHarness::boundedSyntax));
+		
+		paths.add(new Path("specializing interpreter", Stage.RUN, Diagnostics.SAME, source -> run(source, SpecializingInterpreter::new)));
+		paths.add(new Path("profiling interpreter", Stage.RUN, Diagnostics.SAME,
+				source -> run(source, out -> new ProfilingInterpreter(new ExecutionProfile(), out))));
+		paths.add(new Path("bounded interpreter", Stage.RUN, Diagnostics.SAME, DifferentialHarness::boundedRun));
+	}
+	
+	public static void main(String args[]) throws IOException {
+		int cases = 500;
+		int statements = 12;
+		double malformed = 0.5;
+		long seed = 1;
+		String record = null;
+		String baseline = null;
+		double tolerance = 0.25;
+		
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			String name = equals < 0 ? arg : arg.substring(0, equals);
+			String value = equals < 0 ? "" : arg.substring(equals + 1);
+			
+			switch (name) {
+				case "--cases": cases = Integer.parseInt(value); break;
+				case "--statements": statements = Integer.parseInt(value); break;
+				case "--malformed": malformed = Double.parseDouble(value); break;
+				case "--seed": seed = Long.parseLong(value); break;
+				case "--record": record = value; break;
+				case "--baseline": baseline = value; break;
+				case "--tolerance": tolerance = Double.parseDouble(value); break;
+				default:
+					System.out.println("Usage: DifferentialHarness [--cases=N] [--statements=N] [--malformed=P] [--seed=N]"
+							+ " [--record=FILE] [--baseline=FILE] [--tolerance=P]");
+					System.exit(64);
+			}
+		}
+		
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		System.setErr(new PrintStream(errors, true, StandardCharsets.UTF_8));
+		
+		DifferentialHarness harness = new DifferentialHarness();
+		ProgramGenerator generator = new ProgramGenerator(seed);
+		Random random = new Random(seed);
+		
+		int wellFormed = 0;
+		try {
+			for (int i = 0; i < cases; i++) {
+				boolean bad = random.nextDouble() < malformed;
+				String source = bad ? generator.malformed(statements) : generator.wellFormed(statements);
+				if (!bad) wellFormed++;
+				
+				harness.check(source, !bad, out);
+			}
+		} finally {
+			// a crash of the harness itself should not end up with the diagnostics
+			System.setErr(err);
+		}
+		
+		out.printf("%d sources, %d well-formed, %d disagreements%n", cases, wellFormed, harness.failures);
+		if (harness.unparsed > 0) out.printf("%d well-formed sources did not parse%n", harness.unparsed);
+		out.println();
+		boolean slower = harness.report(out, baseline, tolerance);
+		if (record != null) harness.record(record);
+		
+		System.exit(harness.failures > 0 || slower ? 1 : 0);
+	}
+	
+	// runs every path on the source, reporting and shrinking the first disagreement of each
+	private void check(String source, boolean runnable, PrintStream out) {
+		Map<Stage, Outcome> expected = new HashMap<>();
+		for (Path reference : references) {
+			if (reference.stage == Stage.RUN) {
+				if (!runnable) continue;
+				if (!expected.get(Stage.SYNTAX).diagnostics.isEmpty()) {
+					unparsed++;
+					continue;
+				}
+			}
+			expected.put(reference.stage, reference.time(source));
+		}
+		
+		for (Path path : paths) {
+			Outcome reference = expected.get(path.stage);
+			if (reference == null) continue;
+			
+			String mismatch;
+			try {
+				mismatch = compare(reference, path.time(source), path.diagnostics);
+			} catch (RuntimeException | StackOverflowError e) {
+				diagnostics();
+				mismatch = "threw " + e;
+			}
+			if (mismatch == null) continue;
+			
+			failures++;
+			String minimal = shrink(source, path, runnable);
+			out.printf("%s disagrees: %s%n", path.name, mismatch);
+			out.printf("  minimal source (%d of %d chars):%n%s%n", minimal.length(), source.length(), indent(minimal));
+			out.printf("  now: %s%n%n", disagreement(minimal, path));
+		}
+	}
+	
+	private String disagreement(String source, Path path) {
+		Outcome expected = reference(path.stage).run.apply(source);
+		try {
+			return compare(expected, path.run.apply(source), path.diagnostics);
+		} catch (RuntimeException | StackOverflowError e) {
+			diagnostics();
+			return "threw " + e;
+		}
+	}
+	
+	/*
+	 * Removes spans of tokens, halving the span length down to one token,
+	 * then whole statements and groups, or just their brackets, and last
+	 * single characters, for as long as the path still disagrees. The last
+	 * two steps repeat until neither makes progress.
+	 */
+	private String shrink(String source, Path path, boolean runnable) {
+		String current = source;
+		
+		for (int span = Math.max(1, count(current) / 2); span >= 1; span /= 2) {
+			boolean progress = true;
+			while (progress) {
+				progress = false;
+				List<Token> tokens = scan(current);
+				
+				for (int i = 0; i + span < tokens.size(); i += span) {
+					String candidate = remove(current, tokens, i, i + span - 1);
+					if (stillFails(candidate, path, runnable)) {
+						current = candidate;
+						progress = true;
+						break;
+					}
+				}
+			}
+		}
+		
+		for (;;) {
+			String before = current;
+			current = shrinkStructure(current, path, runnable);
+			
+			for (int i = 0; i < current.length(); ) {
+				String candidate = current.substring(0, i) + current.substring(i + 1);
+				if (stillFails(candidate, path, runnable)) {
+					current = candidate;
+				} else {
+					i++;
+				}
+			}
+			
+			if (current.equals(before)) return current;
+		}
+	}
+	
+	// tries every token as the start of a statement or a bracketed group to drop or unwrap
+	private String shrinkStructure(String current, Path path, boolean runnable) {
+		List<Token> tokens = scan(current);
+		
+		for (int i = 0; i < tokens.size() - 1; ) {
+			String found = null;
+			int close = closing(tokens, i);
+			int end = statementEnd(tokens, i);
+			
+			if (close >= 0) {
+				String dropped = remove(current, tokens, i, close);
+				String unwrapped = remove(remove(current, tokens, close, close), tokens, i, i);
+				if (stillFails(dropped, path, runnable)) found = dropped;
+				else if (stillFails(unwrapped, path, runnable)) found = unwrapped;
+			}
+			if (found == null && end >= 0) {
+				String dropped = remove(current, tokens, i, end);
+				if (stillFails(dropped, path, runnable)) found = dropped;
+			}
+			
+			if (found == null) {
+				i++;
+			} else {
+				current = found;
+				tokens = scan(current);
+			}
+		}
+		return current;
+	}
+	
+	// the index of the bracket closing the one at open, -1 when it is not an opening one
+	private static int closing(List<Token> tokens, int open) {
+		TokenType type = tokens.get(open).getType();
+		if (type != TokenType.LEFT_PAREN && type != TokenType.LEFT_BRACE) return -1;
+		
+		int depth = 0;
+		for (int i = open; i < tokens.size(); i++) {
+			switch (tokens.get(i).getType()) {
+				case LEFT_PAREN:
+				case LEFT_BRACE:
+					depth++;
+					break;
+				case RIGHT_PAREN:
+				case RIGHT_BRACE:
+					if (--depth == 0) return i;
+					break;
+				default:
+					break;
+			}
+		}
+		return -1;
+	}
+	
+	// the index of the ';' or '}' ending a statement that starts at start, -1 when there is none
+	private static int statementEnd(List<Token> tokens, int start) {
+		int depth = 0;
+		for (int i = start; i < tokens.size(); i++) {
+			switch (tokens.get(i).getType()) {
+				case LEFT_PAREN:
+				case LEFT_BRACE:
+					depth++;
+					break;
+				case RIGHT_PAREN:
+				case RIGHT_BRACE:
+					if (--depth < 0) return -1;
+					if (depth == 0 && tokens.get(i).getType() == TokenType.RIGHT_BRACE) return i;
+					break;
+				case SEMICOLON:
+					if (depth == 0) return i;
+					break;
+				default:
+					break;
+			}
+		}
+		return -1;
+	}
+	
+	// the source without the tokens from first to last, and the text between them
+	private static String remove(String source, List<Token> tokens, int first, int last) {
+		Token end = tokens.get(last);
+		return source.substring(0, tokens.get(first).getStart()) + source.substring(end.getStart() + end.getLength());
+	}
+	
+	private static List<Token> scan(String source) {
+		return new Scanner(source, new ExecutionContext(ExecutionLimits.UNBOUNDED)).scanTokens();
+	}
+	
+	private boolean stillFails(String source, Path path, boolean runnable) {
+		// removing a loop's increment makes it endless, so a shrunk program must first finish bounded
+		if (path.stage == Stage.RUN) {
+			if (!runnable) return false;
+			
+			ScriptRunner.Status status = ScriptRunner.run(source, SHRINKING).status;
+			if (status != ScriptRunner.Status.OK && status != ScriptRunner.Status.RUNTIME_ERROR) return false;
+		}
+		
+		return disagreement(source, path) != null;
+	}
+	
+	private static int count(String source) {
+		return scan(source).size() - 1;
+	}
+	
+	private static String compare(Outcome reference, Outcome candidate, Diagnostics policy) {
+		if (!reference.text.equals(candidate.text)) {
+			return "output differs at " + firstDifference(reference.text, candidate.text);
+		}
+		
+		switch (policy) {
+			case SAME:
+				if (!reference.diagnostics.equals(candidate.diagnostics)) {
+					return "diagnostics " + summary(candidate.diagnostics) + " instead of " + summary(reference.diagnostics);
+				}
+				break;
+			case UNORDERED: {
+				List<String> expected = new ArrayList<>(reference.diagnostics);
+				List<String> actual = new ArrayList<>(candidate.diagnostics);
+				Collections.sort(expected);
+				Collections.sort(actual);
+				if (!expected.equals(actual)) {
+					return "diagnostics " + summary(actual) + " instead of " + summary(expected);
+				}
+				break;
+			}
+			case FIRST:
+				if (reference.diagnostics.isEmpty() != candidate.diagnostics.isEmpty()
+						|| !reference.diagnostics.isEmpty() && !first(reference.diagnostics).equals(first(candidate.diagnostics))) {
+					return "diagnostics " + summary(candidate.diagnostics) + " instead of " + summary(reference.diagnostics);
+				}
+				break;
+		}
+		return null;
+	}
+	
+	// the diagnostic nearest to the start of the source
+	private static String first(List<String> diagnostics) {
+		String first = null;
+		long firstPosition = Long.MAX_VALUE;
+		
+		for (String diagnostic : diagnostics) {
+			long position = Long.MAX_VALUE - 1;
+			if (diagnostic.startsWith("[line ")) {
+				int colon = diagnostic.indexOf(':');
+				int bracket = diagnostic.indexOf(']');
+				position = Long.parseLong(diagnostic.substring(6, colon)) << 32 | Long.parseLong(diagnostic.substring(colon + 1, bracket));
+			}
+			
+			if (position < firstPosition) {
+				first = diagnostic;
+				firstPosition = position;
+			}
+		}
+		return first;
+	}
+	
+	// the first line of each diagnostic, without the source line and caret under it
+	private static List<String> summary(List<String> diagnostics) {
+		List<String> summary = new ArrayList<>();
+		for (String diagnostic : diagnostics) {
+			int newline = diagnostic.indexOf('\n');
+			summary.add(newline < 0 ? diagnostic : diagnostic.substring(0, newline));
+		}
+		return summary;
+	}
+	
+	private static String firstDifference(String expected, String actual) {
+		int i = 0;
+		while (i < expected.length() && i < actual.length() && expected.charAt(i) == actual.charAt(i)) i++;
+		
+		return "char " + i + ", expected \"" + excerpt(expected, i) + "\" but got \"" + excerpt(actual, i) + "\"";
+	}
+	
+	private static String excerpt(String text, int at) {
+		return text.substring(at, Math.min(text.length(), at + 40)).replace("\n", "\\n");
+	}
+	
+	private static String indent(String source) {
+		return "    " + source.replace("\n", "\n    ");
+	}
+	
+	/*
+	 * Prints the time each path took per char next to its reference, and
+	 * returns whether any path is slower than in the baseline file.
+	 */
+	private boolean report(PrintStream out, String baseline, double tolerance) throws IOException {
+		Map<String, Double> previous = new HashMap<>();
+		if (baseline != null) {
+			for (String line : Files.readAllLines(Paths.get(baseline), StandardCharsets.UTF_8)) {
+				int tab = line.indexOf('\t');
+				previous.put(line.substring(0, tab), Double.parseDouble(line.substring(tab + 1)));
+			}
+		}
+		
+		boolean slower = false;
+		out.printf("%-26s %10s %10s  %s%n", "path", "MB/s", "vs ref", baseline != null ? "vs baseline" : "");
+		for (Path path : all()) {
+			double throughput = throughput(path);
+			double reference = throughput(reference(path.stage));
+			
+			String change = "";
+			Double before = previous.get(path.name);
+			if (before != null) {
+				double ratio = throughput / before;
+				change = String.format("%+.0f%%", (ratio - 1) * 100);
+				if (ratio < 1 - tolerance) {
+					change += "  SLOWER";
+					slower = true;
+				}
+			}
+			
+			out.printf("%-26s %10.2f %9.2fx  %s%n", path.name, throughput, throughput / reference, change);
+		}
+		return slower;
+	}
+	
+	private void record(String file) throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (Path path : all()) {
+			text.append(path.name).append('\t').append(throughput(path)).append('\n');
+		}
+		Files.write(Paths.get(file), text.toString().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private List<Path> all() {
+		List<Path> all = new ArrayList<>(references);
+		all.addAll(paths);
+		return all;
+	}
+	
+	private Path reference(Stage stage) {
+		for (Path reference : references) {
+			if (reference.stage == stage) return reference;
+		}
+		return null;
+	}
+	
+	private static double throughput(Path path) {
+		return path.nanos == 0 ? 0 : path.chars / (path.nanos / 1e3);
+	}
+	
+	// the paths
+	
+	private static Outcome tokens(String source) {
+		List<Token> tokens = new Scanner(source).scanTokens();
+		return new Outcome(describe(tokens), diagnostics());
+	}
+	
+	private static Outcome pipelinedTokens(String source) {
+		TokenRing ring = new TokenRing(Pipeline.CAPACITY);
+		Thread scanner = new Thread(() -> {
+			new Scanner(source).scanTokens(ring, Pipeline.BATCH);
+			ring.close(null);
+		});
+		scanner.start();
+		
+		List<Token> tokens = new ArrayList<>();
+		for (int i = 0; ; i++) {
+			Token token = ring.get(i);
+			tokens.add(token);
+			if (token.getType() == TokenType.EOF) break;
+		}
+		
+		try {
+			scanner.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return new Outcome(describe(tokens), diagnostics());
+	}
+	
+	private static Outcome boundedTokens(String source) {
+		ExecutionContext context = new ExecutionContext(ExecutionLimits.UNBOUNDED);
+		List<Token> tokens = new Scanner(source, context).scanTokens();
+		return new Outcome(describe(tokens), context.diagnostics());
+	}
+	
+	private static String describe(List<Token> tokens) {
+		StringBuilder text = new StringBuilder();
+		for (Token token : tokens) {
+			text.append(token.getType()).append(' ').append(token.getLexeme()).append(' ')
+					.append(token.getLiteral()).append(' ').append(token.getStart()).append('\n');
+		}
+		return text.toString();
+	}
+	
+	private static Outcome syntax(List<Token> tokens, boolean lazy) {
+		List<Stmt> statements = new Parser(tokens, lazy).parseProgram();
+		return print(statements, diagnostics());
+	}
+	
+	private static Outcome boundedSyntax(String source) {
+		ExecutionContext context = new ExecutionContext(ExecutionLimits.UNBOUNDED);
+		List<Token> tokens = new Scanner(source, context).scanTokens();
+		List<Stmt> statements = new Parser(tokens, context).parseProgram();
+		
+		List<String> diagnostics = context.diagnostics();
+		return new Outcome(diagnostics.isEmpty() ? new AstPrinter().print(statements) : "", diagnostics);
+	}
+	
+	/*
+	 * Prints the tree when there were no errors. Printing forces lazy nodes,
+	 * whose errors only show up then, so the diagnostics are taken after;
+	 * with errors every statement is still printed on its own to force what
+	 * can be forced.
+	 */
+	private static Outcome print(List<Stmt> statements, List<String> diagnostics) {
+		String text = "";
+		if (diagnostics.isEmpty()) {
+			try {
+				text = new AstPrinter().print(statements);
+			} catch (RuntimeError error) {
+				text = "";
+			}
+		} else {
+			for (Stmt statement : statements) {
+				try {
+					if (statement != null) new AstPrinter().print(statement);
+				} catch (RuntimeException error) {
+					// a deferred group that failed, or a statement left incomplete by an error
+				}
+			}
+		}
+		
+		diagnostics.addAll(diagnostics());
+		return new Outcome(diagnostics.isEmpty() ? text : "", diagnostics);
+	}
+	
+	private static Outcome run(String source, Function<PrintStream, Interpreter> engine) {
+		List<Stmt> statements = new Parser(new Scanner(source).scanTokens()).parseProgram();
+		diagnostics();
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(output, false, StandardCharsets.UTF_8);
+		engine.apply(out).interpret(statements);
+		out.flush();
+		
+		return new Outcome(output.toString(StandardCharsets.UTF_8), diagnostics());
+	}
+	
+	private static Outcome boundedRun(String source) {
+		ScriptRunner.Result result = ScriptRunner.run(source, ExecutionLimits.UNBOUNDED);
+		return new Outcome(result.output, result.diagnostics);
+	}
+	
+	/*
+	 * Takes what was reported to System.err since the last call, one entry per
+	 * diagnostic, and clears BabyLang's flags for the next path.
+	 */
+	private static List<String> diagnostics() {
+		String text;
+		synchronized (errors) {
+			text = errors.toString(StandardCharsets.UTF_8);
+			errors.reset();
+		}
+		BabyLang.hadError = false;
+		BabyLang.hadRuntimeError = false;
+		
+		List<String> diagnostics = new ArrayList<>();
+		if (text.isEmpty()) return diagnostics;
+		
+		// a syntax error starts with its position, the lines under it belong to it
+		StringBuilder entry = null;
+		for (String line : text.split("\n")) {
+			if (entry == null || line.startsWith("[line ") && line.contains("] Error")) {
+				if (entry != null) diagnostics.add(entry.toString());
+				entry = new StringBuilder(line);
+			} else {
+				entry.append('\n').append(line);
+			}
+		}
+		diagnostics.add(entry.toString());
+		return diagnostics;
+	}
+}
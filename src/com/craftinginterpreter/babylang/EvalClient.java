@@ -0,0 +1,122 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Load generator for EvalServer. Opens a number of connections, each
+ * sending the same one-line script over and over with up to "pipeline"
+ * requests in flight, and reports the throughput and the latency of the
+ * requests from the moment their window was sent to their response.
+ *
+ * usage: EvalClient <address> [connections] [requests per connection] [pipeline] [script]
+ */
+class EvalClient {
+	private static final String SCRIPT =
+			"fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); } print fib(10);";
+	
+	public static void main(String args[]) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: EvalClient <address> [connections] [requests per connection] [pipeline] [script]");
+			System.exit(64);
+		}
+		
+		String address = args[0];
+		int connections = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int requests = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+		int pipeline = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+		String script = args.length > 4 ? args[4] : SCRIPT;
+		
+		// warm up the server
+		run(address, connections, Math.max(1, requests / 4), pipeline, script, new long[connections][]);
+		
+		long latencies[][] = new long[connections][];
+		long start = System.nanoTime();
+		int failed = run(address, connections, requests, pipeline, script, latencies);
+		long elapsed = System.nanoTime() - start;
+		
+		long all[] = new long[connections * requests];
+		for (int i = 0; i < connections; i++) {
+			System.arraycopy(latencies[i], 0, all, i * requests, requests);
+		}
+		Arrays.sort(all);
+		
+		System.out.printf("%s: %d connections x %d requests, pipeline %d%n", address, connections, requests, pipeline);
+		System.out.printf("  %.0f requests/s, latency p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+				all.length / (elapsed / 1e9), all[all.length / 2] / 1e6,
+				all[Math.min(all.length - 1, all.length * 99 / 100)] / 1e6, all[all.length - 1] / 1e6);
+		if (failed > 0) System.out.printf("  %d responses were not OK%n", failed);
+	}
+	
+	// runs every connection on its own thread, returns how many responses were not OK
+	private static int run(String address, int connections, int requests, int pipeline, String script,
+			long latencies[][]) throws Exception {
+		AtomicInteger failed = new AtomicInteger();
+		List<Throwable> errors = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		
+		for (int i = 0; i < connections; i++) {
+			int connection = i;
+			Thread thread = new Thread(() -> {
+				try {
+					latencies[connection] = connection(address, requests, pipeline, script, failed);
+				} catch (IOException e) {
+					synchronized (errors) {
+						errors.add(e);
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) thread.join();
+		
+		if (!errors.isEmpty()) throw new IOException("connection failed", errors.get(0));
+		return failed.get();
+	}
+	
+	private static long[] connection(String address, int requests, int pipeline, String script, AtomicInteger failed)
+			throws IOException {
+		long latencies[] = new long[requests];
+		
+		try (SocketChannel channel = EvalServer.connect(address)) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+			
+			StringBuilder window = new StringBuilder();
+			for (int sent = 0; sent < requests; ) {
+				int count = Math.min(pipeline, requests - sent);
+				window.setLength(0);
+				for (int i = 0; i < count; i++) window.append(script).append('\n');
+				
+				long start = System.nanoTime();
+				ByteBuffer out = StandardCharsets.UTF_8.encode(window.toString());
+				while (out.hasRemaining()) channel.write(out);
+				
+				for (int i = 0; i < count; i++) {
+					String header = in.readLine();
+					if (header == null) throw new IOException("server closed the connection");
+					
+					int space = header.indexOf(' ');
+					if (!header.substring(0, space).equals("OK")) failed.incrementAndGet();
+					
+					int lines = Integer.parseInt(header.substring(space + 1));
+					for (int line = 0; line < lines; line++) in.readLine();
+					
+					latencies[sent + i] = System.nanoTime() - start;
+				}
+				sent += count;
+			}
+		}
+		
+		return latencies;
+	}
+}
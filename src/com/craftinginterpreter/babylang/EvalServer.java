@@ -0,0 +1,210 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Long-running evaluation service on a local socket, so callers do not pay
+ * for a JVM per script. The address is "unix:<path>" for a Unix-domain
+ * socket, or "<port>" / "<host>:<port>" for TCP (host defaults to
+ * loopback).
+ *
+ * Every line a client sends is one script. Each gets one response, in
+ * order: a header "<STATUS> <n>" followed by n lines, the script's output
+ * and then its diagnostics. A script that throws past ScriptRunner gets an
+ * INTERNAL_ERROR response and the connection goes on, unless what it threw
+ * is an Error, which leaves the VM in doubt and closes the connection.
+ * Clients may pipeline; every line that has arrived by the time a read
+ * returns is run as one batch and the responses of the batch go out in a
+ * single write.
+ *
+ * Each connection has its own thread (virtual when the JDK has them) and
+ * runs its scripts through ScriptRunner.run under the server's limits, the
+ * same scan/parse/evaluate path as everything else in the JVM.
+ */
+class EvalServer implements AutoCloseable {
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final ServerSocketChannel channel;
+	private final Path socketFile;
+	private final ExecutorService connections;
+	private final ExecutionLimits limits;
+	
+	EvalServer(String address, ExecutionLimits limits) throws IOException {
+		SocketAddress socketAddress = address(address);
+		
+		if (socketAddress instanceof UnixDomainSocketAddress) {
+			socketFile = ((UnixDomainSocketAddress)socketAddress).getPath();
+			Files.deleteIfExists(socketFile);
+			channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		} else {
+			socketFile = null;
+			channel = ServerSocketChannel.open();
+		}
+		channel.bind(socketAddress);
+		
+		ExecutorService virtual = ScriptRunner.virtualExecutor();
+		this.connections = virtual != null ? virtual : Executors.newCachedThreadPool();
+		this.limits = limits;
+	}
+	
+	// accepts connections until the server is closed
+	void serve() throws IOException {
+		while (channel.isOpen()) {
+			SocketChannel client;
+			try {
+				client = channel.accept();
+			} catch (IOException e) {
+				if (!channel.isOpen()) return;
+				throw e;
+			}
+			connections.execute(() -> handle(client));
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+		connections.shutdownNow();
+		if (socketFile != null) Files.deleteIfExists(socketFile);
+	}
+	
+	private void handle(SocketChannel client) {
+		ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+		StringBuilder response = new StringBuilder();
+		
+		// bytes of the unfinished line already searched for its newline
+		int scanned = 0;
+		
+		try (client) {
+			// responses are small and clients wait for them
+			if (socketFile == null) client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			
+			while (client.read(in) >= 0) {
+				in.flip();
+				for (int end = lineEnd(in, scanned); end >= 0; end = lineEnd(in, 0)) {
+					String source = line(in, end);
+					evaluate(source, response);
+				}
+				scanned = in.remaining();
+				in.compact();
+				
+				if (!in.hasRemaining()) {
+					// a line longer than the buffer; past the source limit it cannot run anyway
+					if (in.capacity() > limits.maxSourceLength) {
+						response.append(ScriptRunner.Status.LIMIT_EXCEEDED).append(" 1\n")
+								.append("Limit exceeded: Source longer than ")
+								.append(limits.maxSourceLength).append(" chars.\n");
+						write(client, response);
+						return;
+					}
+					
+					ByteBuffer grown = ByteBuffer.allocate(in.capacity() * 2);
+					in.flip();
+					grown.put(in);
+					in = grown;
+				}
+				
+				if (response.length() > 0) write(client, response);
+			}
+		} catch (IOException e) {
+			// the client went away, nothing to answer
+		}
+	}
+	
+	// answers one script even when it throws, so the rest of the batch still gets answers
+	private void evaluate(String source, StringBuilder response) {
+		int mark = response.length();
+		try {
+			respond(ScriptRunner.run(source, limits), response);
+		} catch (RuntimeException error) {
+			response.setLength(mark);
+			response.append(ScriptRunner.Status.INTERNAL_ERROR).append(" 1\n")
+					.append("Internal error: ").append(String.valueOf(error).replace('\n', ' ')).append('\n');
+		}
+	}
+	
+	// skips the first bytes of the line, which an earlier read already searched
+	private static int lineEnd(ByteBuffer in, int skip) {
+		for (int i = in.position() + skip; i < in.limit(); i++) {
+			if (in.get(i) == '\n') return i;
+		}
+		return -1;
+	}
+	
+	// decodes the line up to end and moves past its newline
+	private static String line(ByteBuffer in, int end) {
+		int length = end - in.position();
+		if (length > 0 && in.get(end - 1) == '\r') length--;
+		
+		String line = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		in.position(end + 1);
+		return line;
+	}
+	
+	private static void respond(ScriptRunner.Result result, StringBuilder out) {
+		String output = result.output;
+		if (output.endsWith("\n")) output = output.substring(0, output.length() - 1);
+		
+		String diagnostics = String.join("\n", result.diagnostics);
+		
+		int lines = 0;
+		if (!output.isEmpty()) lines += count(output) + 1;
+		if (!diagnostics.isEmpty()) lines += count(diagnostics) + 1;
+		
+		out.append(result.status).append(' ').append(lines).append('\n');
+		if (!output.isEmpty()) out.append(output).append('\n');
+		if (!diagnostics.isEmpty()) out.append(diagnostics).append('\n');
+	}
+	
+	private static int count(String text) {
+		int newlines = 0;
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == '\n') newlines++;
+		}
+		return newlines;
+	}
+	
+	private static void write(SocketChannel client, StringBuilder response) throws IOException {
+		ByteBuffer out = StandardCharsets.UTF_8.encode(response.toString());
+		while (out.hasRemaining()) client.write(out);
+		response.setLength(0);
+	}
+	
+	static SocketAddress address(String address) {
+		if (address.startsWith("unix:")) {
+			return UnixDomainSocketAddress.of(address.substring(5));
+		}
+		
+		int colon = address.lastIndexOf(':');
+		if (colon < 0) {
+			return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+		}
+		return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+	}
+	
+	static SocketChannel connect(String address) throws IOException {
+		SocketAddress socketAddress = address(address);
+		SocketChannel channel = socketAddress instanceof UnixDomainSocketAddress
+				? SocketChannel.open(StandardProtocolFamily.UNIX)
+				: SocketChannel.open();
+		channel.connect(socketAddress);
+		if (!(socketAddress instanceof UnixDomainSocketAddress)) {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		}
+		return channel;
+	}
+}
@@ -0,0 +1,125 @@
+package com.craftinginterpreter.babylang;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The state of one bounded run: counters checked against its limits and
+ * the diagnostics it produced, which would otherwise go to System.err and
+ * the global flags in BabyLang. A context belongs to the thread running the
+ * script, so the counters are plain fields.
+ *
+ * Every check is an increment and a compare. Every yieldInterval units of
+ * work the running thread yields and checks for an interrupt, so a long
+ * script leaves room for the others and can be cancelled.
+ */
+class ExecutionContext {
+	final ExecutionLimits limits;
+	private final List<String> syntaxErrors = new ArrayList<>();
+	private String runtimeError = null;
+	
+	private int tokens = 0;
+	private int nodes = 0;
+	private int nesting = 0;
+	private int calls = 0;
+	private long steps = 0;
+	private int untilYield;
+	
+	ExecutionContext(ExecutionLimits limits) {
+		this.limits = limits;
+		this.untilYield = limits.yieldInterval;
+	}
+	
+	void checkSource(String source) {
+		if (source.length() > limits.maxSourceLength) {
+			throw new LimitExceeded("Source longer than " + limits.maxSourceLength + " chars.");
+		}
+	}
+	
+	void token() {
+		if (++tokens > limits.maxTokens) {
+			throw new LimitExceeded("More than " + limits.maxTokens + " tokens.");
+		}
+		tick();
+	}
+	
+	void node() {
+		if (++nodes > limits.maxNodes) {
+			throw new LimitExceeded("More than " + limits.maxNodes + " syntax tree nodes.");
+		}
+		tick();
+	}
+	
+	void step() {
+		if (++steps > limits.maxSteps) {
+			throw new LimitExceeded("More than " + limits.maxSteps + " evaluation steps.");
+		}
+		tick();
+	}
+	
+	void enter() {
+		if (++nesting > limits.maxNesting) {
+			throw new LimitExceeded("Nesting deeper than " + limits.maxNesting + ".");
+		}
+	}
+	
+	void exit() {
+		nesting--;
+	}
+	
+	// a call starts counting nesting afresh, returns the caller's nesting to restore
+	int enterCall() {
+		if (++calls > limits.maxCallDepth) {
+			throw new LimitExceeded("More than " + limits.maxCallDepth + " nested calls.");
+		}
+		
+		int outer = nesting;
+		nesting = 0;
+		return outer;
+	}
+	
+	void exitCall(int outer) {
+		calls--;
+		nesting = outer;
+	}
+	
+	void checkString(int length) {
+		if (length > limits.maxStringLength) {
+			throw new LimitExceeded("String longer than " + limits.maxStringLength + " chars.");
+		}
+	}
+	
+	private void tick() {
+		if (--untilYield > 0) return;
+		
+		untilYield = limits.yieldInterval;
+		Thread.yield();
+		if (Thread.interrupted()) throw new LimitExceeded("Cancelled.");
+	}
+	
+	void syntaxError(String diagnostic) {
+		syntaxErrors.add(diagnostic);
+	}
+	
+	void runtimeError(String diagnostic) {
+		runtimeError = diagnostic;
+	}
+	
+	boolean hadSyntaxError() {
+		return !syntaxErrors.isEmpty();
+	}
+	
+	boolean hadRuntimeError() {
+		return runtimeError != null;
+	}
+	
+	List<String> diagnostics() {
+		List<String> result = new ArrayList<>(syntaxErrors);
+		if (runtimeError != null) result.add(runtimeError);
+		return result;
+	}
+	
+	long steps() {
+		return steps;
+	}
+}
@@ -0,0 +1,54 @@
+package com.craftinginterpreter.babylang;
+
+/*
+ * What one run of a script may use. Source length, tokens and AST nodes
+ * bound the memory of scanning and parsing, steps bound the time spent
+ * evaluating. Output is counted in bytes, strings in chars.
+ *
+ * The stack is bounded in two parts. Nesting bounds how deep the parser
+ * recurses and how deep evaluation goes within one function body. Call
+ * depth bounds how many BabyLang function calls are active at once.
+ */
+class ExecutionLimits {
+	/*
+	 * A BabyLang call takes about 2 KB of Java stack while its frames are
+	 * still interpreted, so a thread with the default 1 MB stack holds
+	 * about 490 calls of a plain recursive function and fewer for one whose
+	 * body nests deeply. 200 leaves room for that; a body that still runs
+	 * out of stack ends as "Stack exhausted." in ScriptRunner.
+	 */
+	static final int CALL_DEPTH = 200;
+	
+	static final ExecutionLimits DEFAULT = new ExecutionLimits(
+			1 << 20, 200_000, 200_000, 256, CALL_DEPTH, 10_000_000, 1 << 16, 1 << 16, 1024);
+	
+	// only counts, for callers that want a context for its diagnostics or statistics
+	static final ExecutionLimits UNBOUNDED = new ExecutionLimits(
+			Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+			Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 1 << 16);
+	
+	final int maxSourceLength;
+	final int maxTokens;
+	final int maxNodes;
+	final int maxNesting;
+	final int maxCallDepth;
+	final long maxSteps;
+	final int maxStringLength;
+	final int maxOutputLength;
+	
+	// the scanner, parser and interpreter yield every so many units of work
+	final int yieldInterval;
+	
+	ExecutionLimits(int maxSourceLength, int maxTokens, int maxNodes, int maxNesting, int maxCallDepth,
+			long maxSteps, int maxStringLength, int maxOutputLength, int yieldInterval) {
+		this.maxSourceLength = maxSourceLength;
+		this.maxTokens = maxTokens;
+		this.maxNodes = maxNodes;
+		this.maxNesting = maxNesting;
+		this.maxCallDepth = maxCallDepth;
+		this.maxSteps = maxSteps;
+		this.maxStringLength = maxStringLength;
+		this.maxOutputLength = maxOutputLength;
+		this.yieldInterval = yieldInterval;
+	}
+}
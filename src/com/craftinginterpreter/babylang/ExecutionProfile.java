@@ -0,0 +1,168 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.craftinginterpreter.babylang.Expr.*;
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Per-node execution counts and times, shared by any number of profiling
+ * interpreters. Every node gets a Slot the first time it runs; the counters
+ * in a slot are striped (LongAdder) so threads running the same script do
+ * not contend on one cache line.
+ */
+class ExecutionProfile {
+	static class Slot {
+		final String label;
+		final LongAdder count = new LongAdder();
+		final LongAdder total = new LongAdder();
+		final LongAdder self = new LongAdder();
+		
+		Slot(String label) {
+			this.label = label;
+		}
+	}
+	
+	private final Map<Object, Slot> slots = new IdentityHashMap<>();
+	
+	synchronized Slot slot(Object node) {
+		Slot slot = slots.get(node);
+		if (slot == null) {
+			slot = new Slot(label(node));
+			slots.put(node, slot);
+		}
+		
+		return slot;
+	}
+	
+	// the hottest nodes by self time, with their inclusive time and counts
+	void report(PrintStream out, int limit) {
+		List<Slot> sorted;
+		synchronized (this) {
+			sorted = new ArrayList<>(slots.values());
+		}
+		sorted.sort(Comparator.comparingLong((Slot slot) -> slot.self.sum()).reversed());
+		
+		out.printf("%12s %12s %12s  %s%n", "count", "self ms", "total ms", "node");
+		for (int i = 0; i < sorted.size() && i < limit; i++) {
+			Slot slot = sorted.get(i);
+			out.printf("%12d %12.3f %12.3f  %s%n",
+					slot.count.sum(), slot.self.sum() / 1e6, slot.total.sum() / 1e6, slot.label);
+		}
+	}
+	
+	// "Binary + 3:7", using the nearest token of the node for its position
+	static String label(Object node) {
+		String kind = node.getClass().getSimpleName();
+		
+		if (node instanceof Binary) kind += " " + ((Binary)node).operator.getLexeme();
+		else if (node instanceof Unary) kind += " " + ((Unary)node).operator.getLexeme();
+		else if (node instanceof Variable) kind += " " + ((Variable)node).name.getLexeme();
+		else if (node instanceof Assign) kind += " " + ((Assign)node).name.getLexeme();
+		else if (node instanceof Stmt.Function) kind += " " + ((Stmt.Function)node).name.getLexeme();
+		else if (node instanceof Literal) kind += " " + Interpreter.stringify(((Literal)node).value);
+		
+		Token token = node instanceof Expr
+				? ((Expr)node).accept(POSITION)
+				: ((Stmt)node).accept(POSITION);
+		if (token == null) return kind;
+		
+		return kind + " " + token.getLine() + ":" + token.getColumn();
+	}
+	
+	private static final PositionFinder POSITION = new PositionFinder();
+	
+	// finds a token to place a node at, looking into its children when it has none
+	private static class PositionFinder implements Expr.Visitor<Token>, Stmt.Visitor<Token> {
+		@Override
+		public Token visitConditional(Conditional expr) {
+			return expr.expression.accept(this);
+		}
+		
+		@Override
+		public Token visitAssign(Assign expr) {
+			return expr.name;
+		}
+		
+		@Override
+		public Token visitBinary(Binary expr) {
+			return expr.operator;
+		}
+		
+		@Override
+		public Token visitCall(Call expr) {
+			Token token = expr.callee.accept(this);
+			return token != null ? token : expr.paren;
+		}
+		
+		@Override
+		public Token visitGrouping(Grouping expr) {
+			return expr.expression.accept(this);
+		}
+		
+		@Override
+		public Token visitLiteral(Literal expr) {
+			return null;
+		}
+		
+		@Override
+		public Token visitUnary(Unary expr) {
+			return expr.operator;
+		}
+		
+		@Override
+		public Token visitVariable(Variable expr) {
+			return expr.name;
+		}
+		
+		@Override
+		public Token visitBlock(Stmt.Block stmt) {
+			for (Stmt statement : stmt.statements) {
+				Token token = statement.accept(this);
+				if (token != null) return token;
+			}
+			return null;
+		}
+		
+		@Override
+		public Token visitExpression(Stmt.Expression stmt) {
+			return stmt.expression.accept(this);
+		}
+		
+		@Override
+		public Token visitFunction(Stmt.Function stmt) {
+			return stmt.name;
+		}
+		
+		@Override
+		public Token visitIf(Stmt.If stmt) {
+			return stmt.condition.accept(this);
+		}
+		
+		@Override
+		public Token visitPrint(Stmt.Print stmt) {
+			return stmt.expression.accept(this);
+		}
+		
+		@Override
+		public Token visitReturn(Stmt.Return stmt) {
+			return stmt.keyword;
+		}
+		
+		@Override
+		public Token visitVar(Stmt.Var stmt) {
+			return stmt.name;
+		}
+		
+		@Override
+		public Token visitWhile(Stmt.While stmt) {
+			return stmt.condition.accept(this);
+		}
+	}
+}
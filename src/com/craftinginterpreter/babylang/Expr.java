@@ -1,15 +1,20 @@
 package com.craftinginterpreter.babylang;
 
+import java.util.List;
+
 import com.craftinginterpreter.babylang.TokenType.*;
 
 abstract class Expr {
 
 	interface Visitor<R> {
 		R visitConditional(Conditional expr);
+		R visitAssign(Assign expr);
 		R visitBinary(Binary expr);
+		R visitCall(Call expr);
 		R visitGrouping(Grouping expr);
 		R visitLiteral(Literal expr);
 		R visitUnary(Unary expr);
+		R visitVariable(Variable expr);
 	}
 
 	abstract <R> R accept(Visitor<R> visitor);
@@ -31,11 +36,27 @@ abstract class Expr {
 		final Expr elseStatement;
 	}
 
+	static class Assign extends Expr {
+		Assign(Token name, Expr value) {
+			this.name = name;
+			this.value = value;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitAssign(this);
+		}
+
+		final Token name;
+		final Expr value;
+	}
+
 	static class Binary extends Expr {
-		Binary(Expr left, Token operator, Expr right) {
+		Binary(Expr left, Token operator, Expr right, int site) {
 			this.left = left;
 			this.operator = operator;
 			this.right = right;
+			this.site = site;
 		}
 
 		@Override
@@ -46,6 +67,24 @@ abstract class Expr {
 		final Expr left;
 		final Token operator;
 		final Expr right;
+		final int site;
+	}
+
+	static class Call extends Expr {
+		Call(Expr callee, Token paren, List<Expr> arguments) {
+			this.callee = callee;
+			this.paren = paren;
+			this.arguments = arguments;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitCall(this);
+		}
+
+		final Expr callee;
+		final Token paren;
+		final List<Expr> arguments;
 	}
 
 	static class Grouping extends Expr {
@@ -75,9 +114,10 @@ abstract class Expr {
 	}
 
 	static class Unary extends Expr {
-		Unary(Token operator, Expr right) {
+		Unary(Token operator, Expr right, int site) {
 			this.operator = operator;
 			this.right = right;
+			this.site = site;
 		}
 
 		@Override
@@ -87,6 +127,20 @@ abstract class Expr {
 
 		final Token operator;
 		final Expr right;
+		final int site;
+	}
+
+	static class Variable extends Expr {
+		Variable(Token name) {
+			this.name = name;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitVariable(this);
+		}
+
+		final Token name;
 	}
 
 }
@@ -0,0 +1,306 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.craftinginterpreter.babylang.Expr.*;
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Tree-walking evaluator. Numbers are Integer or Double as the scanner
+ * produced them: two Integers give an Integer, anything mixed with a
+ * Double gives a Double. "and" / "or" short-circuit and return the
+ * deciding operand.
+ */
+class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
+	final Environment globals = new Environment();
+	private Environment environment = globals;
+	private final PrintStream out;
+	
+	Interpreter() {
+		this(System.out);
+	}
+	
+	Interpreter(PrintStream out) {
+		this.out = out;
+		
+		globals.define("clock", new BabyLangCallable() {
+			@Override
+			public int arity() {
+				return 0;
+			}
+			
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				return (double)System.currentTimeMillis() / 1000.0;
+			}
+			
+			@Override
+			public String toString() {
+				return "<native fn>";
+			}
+		});
+	}
+	
+	void interpret(List<Stmt> statements) {
+		try {
+			for (Stmt statement : statements) {
+				execute(statement);
+			}
+		} catch (RuntimeError error) {
+			report(error);
+		}
+	}
+	
+	void report(RuntimeError error) {
+		BabyLang.runtimeError(error);
+	}
+	
+	Object evaluate(Expr expr) {
+		return expr.accept(this);
+	}
+	
+	void execute(Stmt stmt) {
+		stmt.accept(this);
+	}
+	
+	// the body of a BabyLangFunction
+	void executeCall(List<Stmt> body, Environment environment) {
+		executeBlock(body, environment);
+	}
+	
+	void executeBlock(List<Stmt> statements, Environment environment) {
+		Environment previous = this.environment;
+		try {
+			this.environment = environment;
+			
+			for (Stmt statement : statements) {
+				execute(statement);
+			}
+		} finally {
+			this.environment = previous;
+		}
+	}
+	
+	@Override
+	public Object visitConditional(Conditional expr) {
+		if (isTruthy(evaluate(expr.expression))) {
+			return evaluate(expr.thenStatement);
+		}
+		
+		return evaluate(expr.elseStatement);
+	}
+	
+	@Override
+	public Object visitAssign(Assign expr) {
+		Object value = evaluate(expr.value);
+		environment.assign(expr.name, value);
+		return value;
+	}
+	
+	@Override
+	public Object visitBinary(Binary expr) {
+		Object left = evaluate(expr.left);
+		
+		switch (expr.operator.getType()) {
+			case AND:
+				return isTruthy(left) ? evaluate(expr.right) : left;
+			case OR:
+				return isTruthy(left) ? left : evaluate(expr.right);
+			default:
+				return binary(expr.operator, left, evaluate(expr.right));
+		}
+	}
+	
+	@Override
+	public Object visitCall(Call expr) {
+		Object callee = evaluate(expr.callee);
+		
+		List<Object> arguments = new ArrayList<>();
+		for (Expr argument : expr.arguments) {
+			arguments.add(evaluate(argument));
+		}
+		
+		if (!(callee instanceof BabyLangCallable)) {
+			throw new RuntimeError(expr.paren, "Can only call functions.");
+		}
+		
+		BabyLangCallable function = (BabyLangCallable)callee;
+		if (arguments.size() != function.arity()) {
+			throw new RuntimeError(expr.paren, "Expected " + function.arity() +
+					" arguments but got " + arguments.size() + ".");
+		}
+		
+		return function.call(this, arguments);
+	}
+	
+	@Override
+	public Object visitGrouping(Grouping expr) {
+		return evaluate(expr.expression);
+	}
+	
+	@Override
+	public Object visitLiteral(Literal expr) {
+		return expr.value;
+	}
+	
+	@Override
+	public Object visitUnary(Unary expr) {
+		return unary(expr.operator, evaluate(expr.right));
+	}
+	
+	@Override
+	public Object visitVariable(Variable expr) {
+		return environment.get(expr.name);
+	}
+	
+	@Override
+	public Void visitBlock(Stmt.Block stmt) {
+		executeBlock(stmt.statements, new Environment(environment));
+		return null;
+	}
+	
+	@Override
+	public Void visitExpression(Stmt.Expression stmt) {
+		evaluate(stmt.expression);
+		return null;
+	}
+	
+	@Override
+	public Void visitFunction(Stmt.Function stmt) {
+		environment.define(stmt.name.getLexeme(), new BabyLangFunction(stmt, environment));
+		return null;
+	}
+	
+	@Override
+	public Void visitIf(Stmt.If stmt) {
+		if (isTruthy(evaluate(stmt.condition))) {
+			execute(stmt.thenBranch);
+		} else if (stmt.elseBranch != null) {
+			execute(stmt.elseBranch);
+		}
+		return null;
+	}
+	
+	@Override
+	public Void visitPrint(Stmt.Print stmt) {
+		out.println(stringify(evaluate(stmt.expression)));
+		return null;
+	}
+	
+	@Override
+	public Void visitReturn(Stmt.Return stmt) {
+		Object value = null;
+		if (stmt.value != null) value = evaluate(stmt.value);
+		
+		throw new Return(value);
+	}
+	
+	@Override
+	public Void visitVar(Stmt.Var stmt) {
+		Object value = null;
+		if (stmt.initializer != null) {
+			value = evaluate(stmt.initializer);
+		}
+		
+		environment.define(stmt.name.getLexeme(), value);
+		return null;
+	}
+	
+	@Override
+	public Void visitWhile(Stmt.While stmt) {
+		while (isTruthy(evaluate(stmt.condition))) {
+			execute(stmt.body);
+		}
+		return null;
+	}
+	
+	// the generic semantics of every operator, shared with the specializing interpreter
+	Object binary(Token operator, Object left, Object right) {
+		switch (operator.getType()) {
+			case BANG_EQUAL: return !isEqual(left, right);
+			case EQUAL_EQUAL: return isEqual(left, right);
+			default:
+				break;
+		}
+		
+		if (operator.getType() == TokenType.PLUS && left instanceof String && right instanceof String) {
+			return (String)left + (String)right;
+		}
+		
+		if (left instanceof Integer && right instanceof Integer) {
+			int a = (Integer)left;
+			int b = (Integer)right;
+			
+			switch (operator.getType()) {
+				case PLUS: return a + b;
+				case MINUS: return a - b;
+				case STAR: return a * b;
+				case SLASH:
+					if (b == 0) throw new RuntimeError(operator, "Division by zero.");
+					return a / b;
+				case GREATER: return a > b;
+				case GREATER_EQUAL: return a >= b;
+				case LESS: return a < b;
+				case LESS_EQUAL: return a <= b;
+				default:
+					break;
+			}
+		} else if (left instanceof Number && right instanceof Number) {
+			double a = ((Number)left).doubleValue();
+			double b = ((Number)right).doubleValue();
+			
+			switch (operator.getType()) {
+				case PLUS: return a + b;
+				case MINUS: return a - b;
+				case STAR: return a * b;
+				case SLASH: return a / b;
+				case GREATER: return a > b;
+				case GREATER_EQUAL: return a >= b;
+				case LESS: return a < b;
+				case LESS_EQUAL: return a <= b;
+				default:
+					break;
+			}
+		}
+		
+		if (operator.getType() == TokenType.PLUS) {
+			throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+		}
+		throw new RuntimeError(operator, "Operands must be numbers.");
+	}
+	
+	Object unary(Token operator, Object right) {
+		switch (operator.getType()) {
+			case BANG:
+				return !isTruthy(right);
+			case MINUS:
+				if (right instanceof Integer) return -(Integer)right;
+				if (right instanceof Double) return -(Double)right;
+				throw new RuntimeError(operator, "Operand must be a number.");
+			default:
+				throw new RuntimeError(operator, "Unknown unary operator.");
+		}
+	}
+	
+	static boolean isTruthy(Object object) {
+		if (object == null) return false;
+		if (object instanceof Boolean) return (boolean)object;
+		return true;
+	}
+	
+	static boolean isEqual(Object a, Object b) {
+		if (a instanceof Number && b instanceof Number) {
+			return ((Number)a).doubleValue() == ((Number)b).doubleValue();
+		}
+		if (a == null) return b == null;
+		
+		return a.equals(b);
+	}
+	
+	static String stringify(Object object) {
+		if (object == null) return "nil";
+		return object.toString();
+	}
+}
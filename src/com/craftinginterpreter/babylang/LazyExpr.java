@@ -0,0 +1,107 @@
+package com.craftinginterpreter.babylang;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Placeholder for a "( ... )" group or a conditional branch that the lazy
+ * parser skipped. It only records the token range; the subtree is parsed
+ * the first time the node is visited, exactly once even when several
+ * threads get there together, and visitors then see the real node.
+ *
+ * Syntax errors inside the range are reported when it is parsed, with the
+ * same positions as in the eager parser. The parser forces every range of
+ * a declaration that has errors of its own, since that declaration is
+ * never visited. Visiting a range that failed to parse throws a
+ * RuntimeError; hasErrors() forces the parse and tells without visiting.
+ */
+class LazyExpr extends Expr {
+	private final List<Token> tokens;
+	private final int start;
+	private final int end;
+	private final boolean group;
+	private final int base;
+	
+	private volatile Expr expr = null;
+	private boolean failed = false;
+	
+	// skipped ranges inside this one, left unparsed by a successful parse
+	private List<LazyExpr> nested = List.of();
+	
+	// for a group the range includes the parentheses, for a branch it is the branch itself;
+	// base is where tokens begins in the whole program
+	LazyExpr(List<Token> tokens, int start, int end, boolean group, int base) {
+		this.tokens = tokens;
+		this.start = start;
+		this.end = end;
+		this.group = group;
+		this.base = base;
+	}
+	
+	@Override
+	<R> R accept(Visitor<R> visitor) {
+		Expr parsed = force();
+		if (failed) {
+			throw new RuntimeError(tokens.get(start), "Syntax error in deferred expression.");
+		}
+		
+		return parsed.accept(visitor);
+	}
+	
+	boolean hasErrors() {
+		force();
+		return failed;
+	}
+	
+	// also parses the ranges nested in this one, for a declaration that failed and is never visited
+	void forceAll() {
+		force();
+		for (LazyExpr lazy : nested) {
+			lazy.forceAll();
+		}
+	}
+	
+	Expr force() {
+		Expr parsed = expr;
+		if (parsed != null) return parsed;
+		
+		synchronized (this) {
+			if (expr == null) {
+				expr = parse();
+			}
+			return expr;
+		}
+	}
+	
+	private Expr parse() {
+		// the range keeps the ')' or the token after the branch, so errors at it read as in the eager parser
+		int from = group ? start + 1 : start;
+		int count = end - from;
+		Token last = tokens.get(end);
+		Token sentinel = new Token(TokenType.EOF, "", null, last.getStart() + last.getLength(), last.getLines());
+		
+		List<Token> range = new AbstractList<Token>() {
+			@Override
+			public Token get(int index) {
+				return index <= count ? tokens.get(from + index) : sentinel;
+			}
+			
+			@Override
+			public int size() {
+				return count + 2;
+			}
+		};
+		
+		Parser parser = new Parser(range, true, base + from);
+		Expr parsed = group ? parser.parseGroup() : parser.parseBranch(count);
+		nested = parser.deferred();
+		if (parsed == null || parser.hadErrors()) {
+			failed = true;
+			return parsed == null ? new Literal(null) : parsed;
+		}
+		
+		return parsed;
+	}
+}
@@ -0,0 +1,71 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Compares eager parsing with lazy parsing on a program file, for example
+ * one written by GenerateCorpus with a high "?" weight and depth. Lazy
+ * parsing is timed on its own (nothing inspected) and followed by a full
+ * print, which forces every deferred range. Forcing everything costs more
+ * than parsing eagerly, since nested ranges are skipped once per level.
+ *
+ * usage: LazyParseBenchmark <script> [runs]
+ */
+class LazyParseBenchmark {
+	public static void main(String args[]) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: LazyParseBenchmark <script> [runs]");
+			System.exit(64);
+		}
+		
+		String source = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		List<Token> tokens = new Scanner(source).scanTokens();
+		
+		for (int i = 0; i < 3; i++) {
+			new Parser(tokens).parseProgram();
+			new AstPrinter().print(new Parser(tokens, true).parseProgram(), Writer.nullWriter());
+		}
+		
+		long eager[] = new long[runs];
+		long printed[] = new long[runs];
+		long lazy[] = new long[runs];
+		long forced[] = new long[runs];
+		
+		for (int i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			List<Stmt> statements = new Parser(tokens).parseProgram();
+			eager[i] = System.nanoTime() - start;
+			
+			new AstPrinter().print(statements, Writer.nullWriter());
+			printed[i] = System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			statements = new Parser(tokens, true).parseProgram();
+			lazy[i] = System.nanoTime() - start;
+			
+			new AstPrinter().print(statements, Writer.nullWriter());
+			forced[i] = System.nanoTime() - start;
+		}
+		
+		System.out.printf("%d tokens, %d runs%n", tokens.size(), runs);
+		System.out.printf("eager          %8.1f ms median%n", median(eager) / 1e6);
+		System.out.printf("eager + print  %8.1f ms median%n", median(printed) / 1e6);
+		System.out.printf("lazy           %8.1f ms median%n", median(lazy) / 1e6);
+		System.out.printf("lazy + forced  %8.1f ms median (includes the print)%n", median(forced) / 1e6);
+	}
+	
+	private static long median(long times[]) {
+		long sorted[] = times.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
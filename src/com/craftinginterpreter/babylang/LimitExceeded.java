@@ -0,0 +1,10 @@
+package com.craftinginterpreter.babylang;
+
+// aborts a bounded run; not a RuntimeError, so the script cannot recover from it
+class LimitExceeded extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	
+	LimitExceeded(String message) {
+		super(message, null, false, false);
+	}
+}
@@ -0,0 +1,146 @@
+package com.craftinginterpreter.babylang;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/*
+ * Runs many scripts at once through a ScriptRunner under the default
+ * limits, first well-behaved ones only and then the same number mixed with
+ * pathological ones: deep nesting, endless loops, doubling strings, token
+ * bombs, unbounded recursion and output floods. Reports the throughput,
+ * the latency percentiles of the well-behaved scripts in both phases, from
+ * submit to completion so the time spent queued counts, and how each kind
+ * of script ended. Every well-behaved one must end OK, including a
+ * recursion 150 calls deep, and every pathological one with
+ * LIMIT_EXCEEDED; otherwise the exit status is 1.
+ *
+ * Without virtual threads the runner falls back to a pool of platform
+ * threads, which has no fair sharing: a yield cannot start a queued
+ * script, so well-behaved scripts queued behind hostile ones wait for
+ * them to hit their limits, and the latencies show it.
+ *
+ * usage: LoadTest [scripts] [hostile percent]
+ */
+class LoadTest {
+	private static final String NORMAL[] = {
+		"fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n" +
+		"var s = \"\";\n" +
+		"for (var i = 0; i < 50; i = i + 1) s = s + \"x\";\n" +
+		"print fib(15);\n" +
+		"print s;\n",
+		"fun down(n) { if (n < 1) return 0; return down(n - 1) + 1; }\n" +
+		"print down(150);\n"
+	};
+	
+	private static boolean failed = false;
+	
+	private static final String HOSTILE_NAMES[] = {
+		"nested parens", "nested unary", "nested blocks", "endless loop", "doubling string",
+		"token bomb", "long literal", "recursion", "output flood"
+	};
+	
+	private static final String HOSTILE[] = {
+		repeat("(", 100_000) + "1" + repeat(")", 100_000) + ";",
+		repeat("-", 100_000) + "1;",
+		repeat("{", 50_000) + repeat("}", 50_000),
+		"while (true) {}",
+		"var s = \"x\"; while (true) s = s + s;",
+		"print 1" + repeat(" + 1", 200_000) + ";",
+		"print \"" + repeat("x", 500_000) + "\";",
+		"fun f(n) { return f(n + 1); } f(0);",
+		"while (true) print \"flood\";"
+	};
+	
+	public static void main(String args[]) throws InterruptedException, ExecutionException {
+		int scripts = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+		int hostilePercent = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		
+		try (ScriptRunner runner = new ScriptRunner()) {
+			System.out.printf("%d scripts per phase on %s%n", scripts,
+					runner.virtualThreads ? "virtual threads" : "a pool of "
+							+ Runtime.getRuntime().availableProcessors() + " platform threads"
+							+ " (no fair sharing, Thread.yield cannot run queued scripts)");
+			
+			// warm up
+			phase(runner, scripts / 4, hostilePercent, false);
+			
+			phase(runner, scripts, 0, true);
+			phase(runner, scripts, hostilePercent, true);
+		}
+		
+		if (failed) {
+			System.out.println("\nsome scripts did not end as expected");
+			System.exit(1);
+		}
+	}
+	
+	private static void phase(ScriptRunner runner, int scripts, int hostilePercent, boolean print)
+			throws InterruptedException, ExecutionException {
+		List<Future<ScriptRunner.Result>> futures = new ArrayList<>(scripts);
+		int kinds[] = new int[scripts];
+		
+		long start = System.nanoTime();
+		for (int i = 0; i < scripts; i++) {
+			// spreads the hostile scripts evenly, cycling through their kinds
+			boolean hostile = (i * hostilePercent) % 100 + hostilePercent >= 100;
+			kinds[i] = hostile ? (i % HOSTILE.length) : -1;
+			futures.add(runner.submit(hostile ? HOSTILE[kinds[i]] : NORMAL[i % NORMAL.length], ExecutionLimits.DEFAULT));
+		}
+		
+		long normalLatencies[] = new long[scripts];
+		long normalTimes[] = new long[scripts];
+		int normal = 0;
+		Map<ScriptRunner.Status, Integer> normalStatus = new EnumMap<>(ScriptRunner.Status.class);
+		List<Map<ScriptRunner.Status, Integer>> hostileStatus = new ArrayList<>();
+		for (int i = 0; i < HOSTILE.length; i++) hostileStatus.add(new EnumMap<>(ScriptRunner.Status.class));
+		
+		for (int i = 0; i < scripts; i++) {
+			ScriptRunner.Result result = futures.get(i).get();
+			if (kinds[i] < 0) {
+				normalLatencies[normal] = result.queued + result.nanos;
+				normalTimes[normal++] = result.nanos;
+				normalStatus.merge(result.status, 1, Integer::sum);
+				if (result.status != ScriptRunner.Status.OK) failed = true;
+			} else {
+				hostileStatus.get(kinds[i]).merge(result.status, 1, Integer::sum);
+				if (result.status != ScriptRunner.Status.LIMIT_EXCEEDED) failed = true;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		
+		if (!print) return;
+		
+		long latencies[] = Arrays.copyOf(normalLatencies, normal);
+		long times[] = Arrays.copyOf(normalTimes, normal);
+		Arrays.sort(latencies);
+		Arrays.sort(times);
+		
+		System.out.printf("%n%d%% hostile: %.0f scripts/s%n", hostilePercent, scripts / (elapsed / 1e9));
+		System.out.printf("  well-behaved latency  p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+				percentile(latencies, 50) / 1e6, percentile(latencies, 99) / 1e6, percentile(latencies, 100) / 1e6);
+		System.out.printf("  well-behaved run time p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+				percentile(times, 50) / 1e6, percentile(times, 99) / 1e6, percentile(times, 100) / 1e6);
+		System.out.printf("  %-16s %s%n", "well-behaved", normalStatus);
+		for (int i = 0; i < HOSTILE.length; i++) {
+			if (!hostileStatus.get(i).isEmpty()) {
+				System.out.printf("  %-16s %s%n", HOSTILE_NAMES[i], hostileStatus.get(i));
+			}
+		}
+	}
+	
+	private static long percentile(long sorted[], int percent) {
+		if (sorted.length == 0) return 0;
+		return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+	}
+	
+	private static String repeat(String text, int count) {
+		StringBuilder builder = new StringBuilder(text.length() * count);
+		for (int i = 0; i < count; i++) builder.append(text);
+		return builder.toString();
+	}
+}
@@ -0,0 +1,155 @@
+package com.craftinginterpreter.babylang;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Parses a program by splitting the token stream at top-level declaration
+ * boundaries and parsing the pieces concurrently on a fork-join pool.
+ *
+ * A declaration ends at a ';' or a closing '}' seen at nesting depth 0,
+ * unless the next token is "else" (the if statement keeps going). Parens
+ * count towards the depth so the clauses of a for loop do not split.
+ *
+ * Every piece is parsed by its own Parser, so error recovery happens per
+ * piece and diagnostics may be reported out of source order.
+ */
+class ParallelParser {
+	// pieces smaller than this (in tokens) are parsed sequentially
+	private static final int THRESHOLD = 4096;
+
+	private final List<Token> tokens;
+	private final int boundaries[];
+	private final int threshold;
+
+	ParallelParser(List<Token> tokens) {
+		this(tokens, THRESHOLD);
+	}
+
+	ParallelParser(List<Token> tokens, int threshold) {
+		this.tokens = tokens;
+		this.boundaries = findBoundaries(tokens);
+		this.threshold = threshold;
+	}
+
+	List<Stmt> parse() {
+		return parse(ForkJoinPool.commonPool());
+	}
+
+	List<Stmt> parse(ForkJoinPool pool) {
+		return pool.invoke(new ParseTask(0, boundaries.length - 1));
+	}
+
+	/*
+	 * Returns the token index where every top-level declaration starts, followed
+	 * by the index of the EOF token.
+	 */
+	static int[] findBoundaries(List<Token> tokens) {
+		int result[] = new int[16];
+		int count = 0;
+		int depth = 0;
+		int end = tokens.size() - 1;
+
+		result[count++] = 0;
+		for (int i = 0; i < end; i++) {
+			boolean closes = false;
+
+			switch (tokens.get(i).getType()) {
+				case LEFT_PAREN:
+				case LEFT_BRACE:
+					depth++;
+					break;
+				case RIGHT_PAREN:
+					if (depth > 0) depth--;
+					break;
+				case RIGHT_BRACE:
+					if (depth > 0) depth--;
+					closes = depth == 0;
+					break;
+				case SEMICOLON:
+					closes = depth == 0;
+					break;
+				default:
+					break;
+			}
+
+			if (closes && i + 1 < end && tokens.get(i + 1).getType() != TokenType.ELSE) {
+				if (count == result.length) {
+					int grown[] = new int[count * 2];
+					System.arraycopy(result, 0, grown, 0, count);
+					result = grown;
+				}
+				result[count++] = i + 1;
+			}
+		}
+
+		int trimmed[] = new int[count + 1];
+		System.arraycopy(result, 0, trimmed, 0, count);
+		trimmed[count] = end;
+		return trimmed;
+	}
+
+	private List<Stmt> parseRange(int from, int to) {
+		int start = boundaries[from];
+		int end = boundaries[to];
+		int count = end - start;
+
+		// the sentinel keeps "at end" diagnostics right after the last token of the piece,
+		// the last piece ends with the real EOF
+		Token sentinel;
+		if (end == tokens.size() - 1) {
+			sentinel = tokens.get(end);
+		} else {
+			Token last = end > start ? tokens.get(end - 1) : tokens.get(end);
+			sentinel = new Token(TokenType.EOF, "", null, last.getStart() + last.getLength(), last.getLines());
+		}
+
+		// a read-only view of the piece, the tokens are shared with the other pieces rather than copied
+		List<Token> slice = new AbstractList<Token>() {
+			@Override
+			public Token get(int index) {
+				return index < count ? tokens.get(start + index) : sentinel;
+			}
+
+			@Override
+			public int size() {
+				return count + 1;
+			}
+		};
+
+		return new Parser(slice, false, start).parseProgram();
+	}
+
+	private class ParseTask extends RecursiveTask<List<Stmt>> {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		ParseTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<Stmt> compute() {
+			if (to - from <= 1 || boundaries[to] - boundaries[from] <= threshold) {
+				return parseRange(from, to);
+			}
+
+			int middle = (from + to) >>> 1;
+			ParseTask left = new ParseTask(from, middle);
+			ParseTask right = new ParseTask(middle, to);
+			left.fork();
+
+			List<Stmt> statements = right.compute();
+			List<Stmt> result = left.join();
+			result.addAll(statements);
+			return result;
+		}
+	}
+}
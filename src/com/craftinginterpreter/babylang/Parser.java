@@ -1,30 +1,103 @@
 package com.craftinginterpreter.babylang;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import com.craftinginterpreter.babylang.TokenType.*;
 import com.craftinginterpreter.babylang.Expr.*;
 
 /*
  * grammar rules for parser
- * expression -> comma 
+ * program -> declaration* EOF
+ * declaration -> funDecl | varDecl | statement
+ * funDecl -> "fun" IDENTIFIER "(" (IDENTIFIER ("," IDENTIFIER)*)? ")" block
+ * varDecl -> "var" IDENTIFIER ("=" expression)? ";"
+ * statement -> exprStmt | forStmt | ifStmt | printStmt | returnStmt | whileStmt | block
+ * exprStmt -> expression ";"
+ * forStmt -> "for" "(" (varDecl | exprStmt | ";") expression? ";" expression? ")" statement
+ * ifStmt -> "if" "(" expression ")" statement ("else" statement)?
+ * printStmt -> "print" expression ";"
+ * returnStmt -> "return" expression? ";"
+ * whileStmt -> "while" "(" expression ")" statement
+ * block -> "{" declaration* "}"
+ * 
+ * expression -> assignment
+ * assignment -> IDENTIFIER "=" assignment | conditional
+ * conditional -> bitwise ("?" bitwise ":" bitwise)?
+ * bitwise -> equality (("and" | "or") equality)*
  * comma -> equality ((",") equality) TODO add later comma operator 
  * equality -> comparison (("!=" | "==") comparison)*
  * comparison -> term((">"|">="|"<"|"<=") term)*
  * term -> factor(("-","+") factor)*
  * factor -> unary (("/" | "*") unary)*
- * unary -> ("!" | "-") unary | primary;
- * primary -> Number | String | "true" | "false" | "nil" | "(" expression ")"
+ * unary -> ("!" | "-") unary | call;
+ * call -> primary ("(" (expression ("," expression)*)? ")")*
+ * primary -> Number | String | "true" | "false" | "nil" | IDENTIFIER | "(" expression ")"
 */
 
 public class Parser {
-	private final List<Token> tokens;
+	private final TokenSource tokens;
 	private int current = 0;
 	
+	// index of the first token in the whole program, so sites stay distinct across pieces and lazy ranges
+	private final int base;
+	
+	// in lazy mode groups and conditional branches are skipped and parsed on first use
+	private final List<Token> list;
+	private boolean lazy;
+	private int errors = 0;
+	
+	// skipped ranges of the current top-level declaration, parsed when it has errors so theirs show too
+	private final List<LazyExpr> deferred = new ArrayList<>();
+	
+	// null unless the parse is bounded, see ExecutionContext
+	private final ExecutionContext context;
+	
 	private static class ParseError extends RuntimeException {}
 	
+	// tokens that complete an operand, the ones that can follow it within a branch, and the ones ending it
+	private static final Set<TokenType> OPERANDS = EnumSet.of(TokenType.IDENTIFIER, TokenType.NUMBER,
+			TokenType.STRING, TokenType.TRUE, TokenType.FALSE, TokenType.NIL);
+	private static final Set<TokenType> OPERATORS = EnumSet.of(TokenType.AND, TokenType.OR,
+			TokenType.BANG_EQUAL, TokenType.EQUAL_EQUAL, TokenType.GREATER, TokenType.GREATER_EQUAL,
+			TokenType.LESS, TokenType.LESS_EQUAL, TokenType.MINUS, TokenType.PLUS, TokenType.SLASH, TokenType.STAR);
+	private static final Set<TokenType> BOUNDARIES = EnumSet.of(TokenType.RIGHT_PAREN, TokenType.COLON,
+			TokenType.COMMA, TokenType.EQUAL, TokenType.QUESTION, TokenType.SEMICOLON, TokenType.LEFT_BRACE,
+			TokenType.RIGHT_BRACE, TokenType.EOF);
+	
 	Parser(List<Token> tokens) {
+		this(tokens, false);
+	}
+	
+	Parser(List<Token> tokens, boolean lazy) {
+		this(tokens, lazy, 0);
+	}
+	
+	Parser(List<Token> tokens, boolean lazy, int base) {
+		this.tokens = tokens::get;
+		this.list = tokens;
+		this.lazy = lazy;
+		this.base = base;
+		this.context = null;
+	}
+	
+	Parser(List<Token> tokens, ExecutionContext context) {
+		this.tokens = tokens::get;
+		this.list = tokens;
+		this.lazy = false;
+		this.base = 0;
+		this.context = context;
+	}
+	
+	Parser(TokenSource tokens) {
 		this.tokens = tokens;
+		this.list = null;
+		this.lazy = false;
+		this.base = 0;
+		this.context = null;
 	}
 	
 	Expr parse() {
@@ -35,18 +108,270 @@ public class Parser {
 	    }
 	 }
 	
+	// parses a skipped "( ... )" from after its '(' to the ')', see LazyExpr
+	Expr parseGroup() {
+		try {
+			Expr expr = expression();
+			consume(TokenType.RIGHT_PAREN, "Expect ')' after expression.");
+			return node(new Grouping(expr));
+		} catch (ParseError error) {
+			forceDeferred();
+			return null;
+		}
+	}
+	
+	// parses a skipped conditional branch followed by the token at end, see LazyExpr
+	Expr parseBranch(int end) {
+		try {
+			Expr expr = bitwise();
+			if (current != end) throw error(peek(), "Expect end of conditional branch.");
+			return expr;
+		} catch (ParseError error) {
+			forceDeferred();
+			return null;
+		}
+	}
+	
+	boolean hadErrors() {
+		return errors > 0;
+	}
+	
+	List<LazyExpr> deferred() {
+		return deferred;
+	}
+	
+	List<Stmt> parseProgram() {
+		List<Stmt> statements = new ArrayList<>();
+		while (!isAtEnd()) {
+			int before = errors;
+			statements.add(declaration());
+			
+			// a declaration with errors is never run, so nothing would parse what it skipped
+			if (errors > before) forceDeferred();
+			deferred.clear();
+		}
+		
+		return statements;
+	}
+	
+	private Stmt declaration() {
+		try {
+			if (match(TokenType.FUN)) return function();
+			if (match(TokenType.VAR)) return varDeclaration();
+			
+			return statement();
+		} catch (ParseError error) {
+			synchronize();
+			return null;
+		}
+	}
+	
+	private void forceDeferred() {
+		for (LazyExpr expr : deferred) {
+			expr.forceAll();
+		}
+		deferred.clear();
+	}
+	
+	private Stmt function() {
+		enter();
+		try {
+			return functionBody();
+		} finally {
+			exit();
+		}
+	}
+	
+	private Stmt functionBody() {
+		Token name = consume(TokenType.IDENTIFIER, "Expect function name.");
+		consume(TokenType.LEFT_PAREN, "Expect '(' after function name.");
+		
+		List<Token> parameters = new ArrayList<>();
+		if (!check(TokenType.RIGHT_PAREN)) {
+			do {
+				parameters.add(consume(TokenType.IDENTIFIER, "Expect parameter name."));
+			} while (match(TokenType.COMMA));
+		}
+		consume(TokenType.RIGHT_PAREN, "Expect ')' after parameters.");
+		
+		consume(TokenType.LEFT_BRACE, "Expect '{' before function body.");
+		List<Stmt> body = block();
+		return node(new Stmt.Function(name, parameters, body));
+	}
+	
+	private Stmt varDeclaration() {
+		Token name = consume(TokenType.IDENTIFIER, "Expect variable name.");
+		
+		Expr initializer = null;
+		if (match(TokenType.EQUAL)) {
+			initializer = expression();
+		}
+		
+		consume(TokenType.SEMICOLON, "Expect ';' after variable declaration.");
+		return node(new Stmt.Var(name, initializer));
+	}
+	
+	private Stmt statement() {
+		enter();
+		try {
+			if (match(TokenType.FOR)) return forStatement();
+			if (match(TokenType.IF)) return ifStatement();
+			if (match(TokenType.PRINT)) return printStatement();
+			if (match(TokenType.RETURN)) return returnStatement();
+			if (match(TokenType.WHILE)) return whileStatement();
+			if (match(TokenType.LEFT_BRACE)) return node(new Stmt.Block(block()));
+			
+			return expressionStatement();
+		} finally {
+			exit();
+		}
+	}
+	
+	// for loops are desugared into a while loop wrapped in blocks
+	private Stmt forStatement() {
+		consume(TokenType.LEFT_PAREN, "Expect '(' after 'for'.");
+		
+		Stmt initializer;
+		if (match(TokenType.SEMICOLON)) {
+			initializer = null;
+		} else if (match(TokenType.VAR)) {
+			initializer = varDeclaration();
+		} else {
+			initializer = expressionStatement();
+		}
+		
+		Expr condition = null;
+		if (!check(TokenType.SEMICOLON)) {
+			condition = expression();
+		}
+		consume(TokenType.SEMICOLON, "Expect ';' after loop condition.");
+		
+		Expr increment = null;
+		if (!check(TokenType.RIGHT_PAREN)) {
+			increment = expression();
+		}
+		consume(TokenType.RIGHT_PAREN, "Expect ')' after for clauses.");
+		
+		Stmt body = statement();
+		
+		if (increment != null) {
+			body = node(new Stmt.Block(Arrays.asList(body, node(new Stmt.Expression(increment)))));
+		}
+		
+		if (condition == null) condition = node(new Expr.Literal(true));
+		body = node(new Stmt.While(condition, body));
+		
+		if (initializer != null) {
+			body = node(new Stmt.Block(Arrays.asList(initializer, body)));
+		}
+		
+		return body;
+	}
+	
+	private Stmt ifStatement() {
+		consume(TokenType.LEFT_PAREN, "Expect '(' after 'if'.");
+		Expr condition = expression();
+		consume(TokenType.RIGHT_PAREN, "Expect ')' after if condition.");
+		
+		Stmt thenBranch = statement();
+		Stmt elseBranch = null;
+		if (match(TokenType.ELSE)) {
+			elseBranch = statement();
+		}
+		
+		return node(new Stmt.If(condition, thenBranch, elseBranch));
+	}
+	
+	private Stmt printStatement() {
+		Expr value = expression();
+		consume(TokenType.SEMICOLON, "Expect ';' after value.");
+		return node(new Stmt.Print(value));
+	}
+	
+	private Stmt returnStatement() {
+		Token keyword = previous();
+		Expr value = null;
+		if (!check(TokenType.SEMICOLON)) {
+			value = expression();
+		}
+		
+		consume(TokenType.SEMICOLON, "Expect ';' after return value.");
+		return node(new Stmt.Return(keyword, value));
+	}
+	
+	private Stmt whileStatement() {
+		consume(TokenType.LEFT_PAREN, "Expect '(' after 'while'.");
+		Expr condition = expression();
+		consume(TokenType.RIGHT_PAREN, "Expect ')' after condition.");
+		Stmt body = statement();
+		
+		return node(new Stmt.While(condition, body));
+	}
+	
+	private Stmt expressionStatement() {
+		Expr expr = expression();
+		consume(TokenType.SEMICOLON, "Expect ';' after expression.");
+		return node(new Stmt.Expression(expr));
+	}
+	
+	private List<Stmt> block() {
+		List<Stmt> statements = new ArrayList<>();
+		
+		while (!check(TokenType.RIGHT_BRACE) && !isAtEnd()) {
+			statements.add(declaration());
+		}
+		
+		consume(TokenType.RIGHT_BRACE, "Expect '}' after block.");
+		return statements;
+	}
+	
 	private Expr expression() {
-		return conditional();
+		return assignment();
+	}
+	
+	private Expr assignment() {
+		Expr expr = conditional();
+		
+		if (match(TokenType.EQUAL)) {
+			Token equals = previous();
+			
+			// the target is reported after the value, so errors in the value must not be deferred past it
+			boolean deferring = lazy;
+			if (!(expr instanceof Variable)) lazy = false;
+			
+			Expr value;
+			enter();
+			try {
+				value = assignment();
+			} finally {
+				exit();
+				lazy = deferring;
+			}
+			
+			if (expr instanceof Variable) {
+				Token name = ((Variable)expr).name;
+				return node(new Assign(name, value));
+			}
+			
+			error(equals, "Invalid assignment target.");
+		}
+		
+		return expr;
 	}
 	
 	private Expr conditional() {
 		Expr expr = bitwise();
 		
 		if (match(TokenType.QUESTION)) {
+			if (lazy) {
+				Expr deferred = deferConditional(expr);
+				if (deferred != null) return deferred;
+			}
+			
 			Expr thenStatement = bitwise();
 			consume(TokenType.COLON, "Expect ':' after then branch of conditional expression.");
 			Expr elseStatement = bitwise();
-			expr = new Conditional(expr, thenStatement, elseStatement);
+			expr = node(new Conditional(expr, thenStatement, elseStatement));
 		}
 		
 		return expr;
@@ -57,8 +382,9 @@ public class Parser {
 		
 		while (match(TokenType.AND, TokenType.OR)) {
 			Token token = previous();
+			int site = site();
 			Expr right = equality();
-			expr = new Binary(expr, token, right);
+			expr = node(new Binary(expr, token, right, site));
 		}
 		
 		return expr;
@@ -69,8 +395,9 @@ public class Parser {
 		
 		while (match(TokenType.BANG_EQUAL, TokenType.EQUAL_EQUAL)) {
 			Token token = previous();
+			int site = site();
 			Expr right = comparison();
-			expr = new Binary(expr, token, right);
+			expr = node(new Binary(expr, token, right, site));
 		}
 		
 		return expr;
@@ -81,8 +408,9 @@ public class Parser {
 		
 		while (match(TokenType.GREATER, TokenType.GREATER_EQUAL, TokenType.LESS, TokenType.LESS_EQUAL)) {
 			Token token = previous();
+			int site = site();
 			Expr right = term();
-			expr = new Binary(expr, token, right);
+			expr = node(new Binary(expr, token, right, site));
 		}
 		
 		return expr;
@@ -93,8 +421,9 @@ public class Parser {
 		
 		while (match(TokenType.MINUS, TokenType.PLUS)) {
 			Token token = previous();
+			int site = site();
 			Expr right = factor();
-			expr = new Binary(expr, token, right);
+			expr = node(new Binary(expr, token, right, site));
 		}
 		
 		return expr;
@@ -105,36 +434,79 @@ public class Parser {
 		
 		while (match(TokenType.SLASH, TokenType.STAR)) {
 			Token token = previous();
+			int site = site();
 			Expr right = unary();
-			expr = new Binary(expr, token, right);
+			expr = node(new Binary(expr, token, right, site));
 		}
 		
 		return expr;
 	}
 	
+	// every nested expression passes through here, so this is where the depth is bounded
 	private Expr unary() {
-		if (match(TokenType.BANG, TokenType.MINUS)) {
-			Token token = previous();
-			Expr right = unary();
-			return new Unary(token, right);
+		enter();
+		try {
+			if (match(TokenType.BANG, TokenType.MINUS)) {
+				Token token = previous();
+				int site = site();
+				Expr right = unary();
+				return node(new Unary(token, right, site));
+			}
+			
+			return call();
+		} finally {
+			exit();
+		}
+	}
+	
+	private Expr call() {
+		Expr expr = primary();
+		
+		while (match(TokenType.LEFT_PAREN)) {
+			expr = finishCall(expr);
 		}
 		
-		return primary();
+		return expr;
+	}
+	
+	private Expr finishCall(Expr callee) {
+		List<Expr> arguments = new ArrayList<>();
+		if (!check(TokenType.RIGHT_PAREN)) {
+			do {
+				arguments.add(expression());
+			} while (match(TokenType.COMMA));
+		}
+		
+		Token paren = consume(TokenType.RIGHT_PAREN, "Expect ')' after arguments.");
+		return node(new Call(callee, paren, arguments));
 	}
 	
 	private Expr primary() {
-		if (match(TokenType.FALSE)) return new Expr.Literal(false);
-	    if (match(TokenType.TRUE)) return new Expr.Literal(true);
-	    if (match(TokenType.NIL)) return new Expr.Literal(null);
+		if (match(TokenType.FALSE)) return node(new Expr.Literal(false));
+	    if (match(TokenType.TRUE)) return node(new Expr.Literal(true));
+	    if (match(TokenType.NIL)) return node(new Expr.Literal(null));
 
 	    if (match(TokenType.NUMBER, TokenType.STRING)) {
-	      return new Expr.Literal(previous().getLiteral());
+	      return node(new Expr.Literal(previous().getLiteral()));
+	    }
+	    
+	    if (match(TokenType.IDENTIFIER)) {
+	      return node(new Expr.Variable(previous()));
 	    }
 
 	    if (match(TokenType.LEFT_PAREN)) {
+	      if (lazy) {
+	    	  int close = skipGroup(current - 1);
+	    	  if (close >= 0) {
+	    		  Expr deferred = defer(new LazyExpr(list, current - 1, close, true, base));
+	    		  current = close + 1;
+	    		  return deferred;
+	    	  }
+	      }
+	      
 	      Expr expr = expression();
 	      consume(TokenType.RIGHT_PAREN, "Expect ')' after expression.");
-	      return new Expr.Grouping(expr);
+	      return node(new Expr.Grouping(expr));
 	    }
 	    
 	    // check for equality
@@ -168,6 +540,87 @@ public class Parser {
 	    throw error(peek(), "Expect expression.");
 	}
 	
+	/*
+	 * Returns the index of the ')' matching the '(' at open, or -1 when the
+	 * group is not balanced before a statement boundary. Unbalanced groups
+	 * are parsed eagerly so their errors are reported straight away.
+	 */
+	private int skipGroup(int open) {
+		int depth = 0;
+		
+		for (int i = open; ; i++) {
+			switch (list.get(i).getType()) {
+				case LEFT_PAREN:
+					depth++;
+					break;
+				case RIGHT_PAREN:
+					if (--depth == 0) return i;
+					break;
+				case SEMICOLON:
+				case LEFT_BRACE:
+				case RIGHT_BRACE:
+				case EOF:
+					return -1;
+				default:
+					break;
+			}
+		}
+	}
+	
+	/*
+	 * Skips both branches of a conditional after its '?'. The then branch
+	 * runs to the ':' at depth 0, the else branch to the first depth-0 token
+	 * that cannot continue it, which is where bitwise() would stop. Returns
+	 * null when either branch is empty, unbalanced or stops early, so the
+	 * eager path reports the error.
+	 */
+	private Expr deferConditional(Expr condition) {
+		int colon = branchEnd(current, true);
+		if (colon < 0 || colon == current || list.get(colon).getType() != TokenType.COLON) return null;
+		
+		int end = branchEnd(colon + 1, false);
+		if (end < 0 || end == colon + 1) return null;
+		
+		Expr thenStatement = defer(new LazyExpr(list, current, colon, false, base));
+		Expr elseStatement = defer(new LazyExpr(list, colon + 1, end, false, base));
+		current = end;
+		return node(new Conditional(condition, thenStatement, elseStatement));
+	}
+	
+	// a branch ends after a whole operand, the then branch at a ':'; anything else is left to the eager path
+	private int branchEnd(int from, boolean thenBranch) {
+		int depth = 0;
+		boolean operand = false;
+		
+		for (int i = from; ; i++) {
+			TokenType type = list.get(i).getType();
+			
+			// after a whole operand only an operator or a call continues the branch
+			if (depth == 0 && (BOUNDARIES.contains(type) || operand && !OPERATORS.contains(type) && type != TokenType.LEFT_PAREN)) {
+				if (!operand || thenBranch && type != TokenType.COLON) return -1;
+				return i;
+			}
+			
+			switch (type) {
+				case LEFT_PAREN:
+					depth++;
+					break;
+				case RIGHT_PAREN:
+					depth--;
+					break;
+				case SEMICOLON:
+				case LEFT_BRACE:
+				case RIGHT_BRACE:
+				case EOF:
+					return -1;
+				default:
+					break;
+			}
+			
+			if (depth == 0) operand = type == TokenType.RIGHT_PAREN || OPERANDS.contains(type);
+		}
+	}
+	
 	private Token consume(TokenType type, String message) {
 		if (check(type)) return advance();
 		
@@ -206,6 +659,11 @@ public class Parser {
 	private Token previous() {
 		return tokens.get(current - 1);
 	}
+
+	// a Binary or Unary is numbered by its operator's position in the program, see SpecializingInterpreter
+	private int site() {
+		return base + current - 1;
+	}
 	
 	private void synchronize() {
 	    advance();
@@ -223,14 +681,39 @@ public class Parser {
 	        case PRINT:
 	        case RETURN:
 	          return;
+	        default:
+	          break;
 	      }
 
 	      advance();
 	    }
 	}
 	
+	private <T> T node(T node) {
+		if (context != null) context.node();
+		return node;
+	}
+	
+	private Expr defer(LazyExpr expr) {
+		deferred.add(expr);
+		return node(expr);
+	}
+	
+	private void enter() {
+		if (context != null) context.enter();
+	}
+	
+	private void exit() {
+		if (context != null) context.exit();
+	}
+	
 	private ParseError error(Token token, String message) {
-		BabyLang.error(token, message);
+		errors++;
+		if (context != null) {
+			context.syntaxError(BabyLang.format(token, message));
+		} else {
+			BabyLang.error(token, message);
+		}
 		return new ParseError();
 	}
 }
@@ -0,0 +1,50 @@
+package com.craftinginterpreter.babylang;
+
+import java.util.List;
+
+/*
+ * Runs the scanner on its own thread and lets the parser consume tokens
+ * through a TokenRing while they are still being produced, so scanning
+ * and parsing overlap and the full token list never exists.
+ */
+class Pipeline {
+	static final int CAPACITY = 1 << 14;
+	static final int BATCH = 512;
+	
+	static List<Stmt> parseProgram(String source) {
+		TokenRing ring = new TokenRing(CAPACITY);
+		Thread scanner = startScanner(source, ring);
+		
+		try {
+			return new Parser(ring).parseProgram();
+		} finally {
+			finish(scanner, ring);
+		}
+	}
+	
+	private static Thread startScanner(String source, TokenRing ring) {
+		Thread thread = new Thread(() -> {
+			try {
+				new Scanner(source).scanTokens(ring, BATCH);
+				ring.close(null);
+			} catch (Throwable error) {
+				ring.close(error);
+			}
+		}, "babylang-scanner");
+		
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+	
+	// the parser may stop before EOF, so the scanner is told to give up rather than waited on blindly
+	private static void finish(Thread scanner, TokenRing ring) {
+		ring.cancel();
+		
+		try {
+			scanner.join();
+		} catch (InterruptedException error) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Compares the sequential handoff (scan everything into a List<Token>,
+ * then parse) with the pipelined one on a program file, for example one
+ * written by GenerateCorpus. Reports the median wall time and the live
+ * heap right after parsing, while the sequential path still holds its
+ * token list.
+ *
+ * usage: PipelineBenchmark <script> [runs]
+ */
+class PipelineBenchmark {
+	private static Object retained;
+	
+	public static void main(String args[]) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: PipelineBenchmark <script> [runs]");
+			System.exit(64);
+		}
+		
+		String source = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		
+		// warm up both paths
+		for (int i = 0; i < 3; i++) {
+			sequential(source);
+			Pipeline.parseProgram(source);
+		}
+		
+		long sequentialTimes[] = new long[runs];
+		long pipelinedTimes[] = new long[runs];
+		long sequentialHeap = 0;
+		long pipelinedHeap = 0;
+		
+		for (int i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			retained = sequential(source);
+			sequentialTimes[i] = System.nanoTime() - start;
+			sequentialHeap = Math.max(sequentialHeap, liveHeap());
+			retained = null;
+			
+			start = System.nanoTime();
+			retained = Pipeline.parseProgram(source);
+			pipelinedTimes[i] = System.nanoTime() - start;
+			pipelinedHeap = Math.max(pipelinedHeap, liveHeap());
+			retained = null;
+		}
+		
+		System.out.printf("%d chars, %d runs%n", source.length(), runs);
+		System.out.printf("sequential %8.1f ms median %8.1f MB live%n", median(sequentialTimes) / 1e6, sequentialHeap / 1e6);
+		System.out.printf("pipelined  %8.1f ms median %8.1f MB live%n", median(pipelinedTimes) / 1e6, pipelinedHeap / 1e6);
+		
+		if (BabyLang.hadError) System.out.println("(the script has errors, the timings include error recovery)");
+	}
+	
+	private static Object[] sequential(String source) {
+		List<Token> tokens = new Scanner(source).scanTokens();
+		List<Stmt> statements = new Parser(tokens).parseProgram();
+		return new Object[] { tokens, statements };
+	}
+	
+	private static long liveHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	private static long median(long times[]) {
+		long sorted[] = times.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
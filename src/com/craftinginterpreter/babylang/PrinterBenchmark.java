@@ -0,0 +1,79 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.craftinginterpreter.babylang.Expr.*;
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Times AstPrinter and RpnPrinter writing trees of about a million nodes
+ * to a file. Both a balanced tree and a left-deep chain (what the parser
+ * builds for "1 + 2 + 3 + ...") are measured.
+ *
+ * usage: PrinterBenchmark [nodes] [output file]
+ */
+class PrinterBenchmark {
+	private static final Token PLUS = new Token(TokenType.PLUS, "+", null, 1);
+	private static final Token STAR = new Token(TokenType.STAR, "*", null, 1);
+	private static final Token MINUS = new Token(TokenType.MINUS, "-", null, 1);
+
+	public static void main(String args[]) throws IOException {
+		int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Path output = args.length > 1 ? Paths.get(args[1]) : Files.createTempFile("babylang-print", ".txt");
+
+		Expr balanced = balanced(nodes, 0);
+		Expr chain = chain(nodes);
+
+		// warm up so the measured runs are compiled code
+		for (int i = 0; i < 3; i++) {
+			run(null, new AstPrinter(), balanced, output);
+			run(null, new RpnPrinter(), chain, output);
+		}
+
+		run("ast, balanced", new AstPrinter(), balanced, output);
+		run("ast, chain", new AstPrinter(), chain, output);
+		run("rpn, balanced", new RpnPrinter(), balanced, output);
+		run("rpn, chain", new RpnPrinter(), chain, output);
+
+		if (args.length < 2) Files.delete(output);
+	}
+
+	private static void run(String label, StreamingPrinter printer, Expr expr, Path output) throws IOException {
+		long start = System.nanoTime();
+		try (Writer out = new BufferedWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8), 1 << 16)) {
+			printer.print(expr, out);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		if (label == null) return;
+		long bytes = Files.size(output);
+		System.out.printf("%-16s %8.1f ms %10d bytes %8.1f MB/s%n",
+				label, elapsed / 1e6, bytes, bytes / (elapsed / 1e9) / (1 << 20));
+	}
+
+	// a tree of about the given node count with binary, unary and grouping nodes;
+	// the trees are only printed, so every node can be site 0
+	private static Expr balanced(int nodes, int seed) {
+		if (nodes <= 1) return new Literal(seed);
+		if (nodes == 2) return new Unary(MINUS, new Literal(seed), 0);
+		if (nodes % 7 == 0) return new Grouping(balanced(nodes - 1, seed));
+
+		int left = (nodes - 1) / 2;
+		return new Binary(balanced(left, seed), (seed & 1) == 0 ? PLUS : STAR,
+				balanced(nodes - 1 - left, seed + 1), 0);
+	}
+
+	private static Expr chain(int nodes) {
+		Expr expr = new Literal(0);
+		for (int i = 1; i < nodes / 2; i++) {
+			expr = new Binary(expr, PLUS, new Literal(i), 0);
+		}
+		return expr;
+	}
+}
@@ -0,0 +1,78 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Times a script with profiling off (the plain Interpreter) or on (the
+ * ProfilingInterpreter). Run each mode in its own JVM, as the CLI does:
+ * with profiling off the profiler classes are never loaded, so the
+ * evaluation path is exactly the one without a profiler. See
+ * scripts/profiler-bench.sh.
+ *
+ * The script is a file, or one of the built-in ones: "fib" (the default)
+ * runs fib(20) five times, "deep" recurses far enough that a call path
+ * tree without folding would grow to millions of frames.
+ *
+ * usage: ProfilerBenchmark <off | on> [fib | deep | script] [runs]
+ */
+class ProfilerBenchmark {
+	private static final String FIB =
+		"fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n" +
+		"var i = 0;\n" +
+		"while (i < 5) { print fib(20); i = i + 1; }\n";
+	
+	private static final String DEEP =
+		"fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n" +
+		"fun down(n) { if (n < 1) return 0; return down(n - 1) + 1; }\n" +
+		"print fib(25);\n" +
+		"print down(500);\n";
+	
+	public static void main(String args[]) throws IOException {
+		if (args.length < 1 || !(args[0].equals("off") || args[0].equals("on"))) {
+			System.out.println("Usage: ProfilerBenchmark <off | on> [fib | deep | script] [runs]");
+			System.exit(64);
+		}
+		
+		String script = args.length > 1 ? args[1] : "fib";
+		String source = script.equals("fib") ? FIB
+				: script.equals("deep") ? DEEP
+				: new String(Files.readAllBytes(Paths.get(script)), StandardCharsets.UTF_8);
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+		
+		List<Stmt> statements = new Parser(new Scanner(source).scanTokens()).parseProgram();
+		if (BabyLang.hadError) System.exit(65);
+		
+		PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+		
+		long median;
+		if (args[0].equals("off")) {
+			median = phase(runs, () -> new Interpreter(discard).interpret(statements));
+		} else {
+			median = phase(runs, () -> new ProfilingInterpreter(new ExecutionProfile(), discard).interpret(statements));
+		}
+		
+		System.out.printf("profiling %-3s %8.2f ms median%n", args[0], median / 1e6);
+	}
+	
+	private static long phase(int runs, Runnable run) {
+		// warm up until the phase's code is compiled
+		for (int i = 0; i < runs; i++) run.run();
+		
+		long times[] = new long[runs];
+		for (int i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			run.run();
+			times[i] = System.nanoTime() - start;
+		}
+		
+		Arrays.sort(times);
+		return times[runs / 2];
+	}
+}
@@ -0,0 +1,208 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Interpreter that times every evaluate() and execute(). Counts and times
+ * are kept per call path in a tree owned by this interpreter's thread, so
+ * the hot path only touches plain fields; flush() folds them into the
+ * shared ExecutionProfile. The tree can also be written as collapsed
+ * stacks for flame graphs.
+ *
+ * Recursion is folded: a node already on the path runs in the frame it
+ * has there, so the tree stays as big as the program, not as deep as the
+ * recursion.
+ *
+ * Profiling is switched on by choosing this class; the plain Interpreter
+ * has no hooks, so there is nothing to pay when it is off.
+ */
+class ProfilingInterpreter extends Interpreter {
+	private final ExecutionProfile profile;
+	
+	// slots already looked up by this thread, so the shared table is only hit once per node
+	private final Map<Object, ExecutionProfile.Slot> slots = new IdentityHashMap<>();
+	
+	private final Frame root = new Frame(null, null, null);
+	private Frame frame = root;
+	
+	// the frame each active one was entered from, and the time spent in its children to derive self time
+	private Frame callers[] = new Frame[64];
+	private long childTime[] = new long[64];
+	private int depth = 0;
+	
+	ProfilingInterpreter(ExecutionProfile profile) {
+		super();
+		this.profile = profile;
+	}
+	
+	ProfilingInterpreter(ExecutionProfile profile, PrintStream out) {
+		super(out);
+		this.profile = profile;
+	}
+	
+	@Override
+	void interpret(List<Stmt> statements) {
+		try {
+			super.interpret(statements);
+		} finally {
+			flush();
+		}
+	}
+	
+	@Override
+	Object evaluate(Expr expr) {
+		enter(expr);
+		long start = System.nanoTime();
+		try {
+			return super.evaluate(expr);
+		} finally {
+			exit(start);
+		}
+	}
+	
+	@Override
+	void execute(Stmt stmt) {
+		enter(stmt);
+		long start = System.nanoTime();
+		try {
+			super.execute(stmt);
+		} finally {
+			exit(start);
+		}
+	}
+	
+	// adds what was recorded since the last flush to the shared profile
+	void flush() {
+		List<Frame> work = new ArrayList<>();
+		root.addChildren(work);
+		while (!work.isEmpty()) {
+			Frame node = work.remove(work.size() - 1);
+			
+			node.slot.count.add(node.count);
+			node.slot.total.add(node.total);
+			node.slot.self.add(node.self - node.flushedSelf);
+			node.count = 0;
+			node.total = 0;
+			node.flushedSelf = node.self;
+			
+			node.addChildren(work);
+		}
+	}
+	
+	private void enter(Object node) {
+		Frame child = frame.children.get(node);
+		if (child == null) {
+			child = active(node);
+			if (child == null) child = new Frame(frame, node, slot(node));
+			frame.children.put(node, child);
+		}
+		
+		if (++depth == childTime.length) {
+			callers = Arrays.copyOf(callers, depth * 2);
+			childTime = Arrays.copyOf(childTime, depth * 2);
+		}
+		callers[depth] = frame;
+		childTime[depth] = 0;
+		
+		frame = child;
+		frame.active++;
+	}
+	
+	// the frame of node when it is on the current path, only looked for when a path is new
+	private Frame active(Object node) {
+		for (Frame ancestor = frame; ancestor != root; ancestor = ancestor.parent) {
+			if (ancestor.node == node) return ancestor;
+		}
+		return null;
+	}
+	
+	private ExecutionProfile.Slot slot(Object node) {
+		ExecutionProfile.Slot slot = slots.get(node);
+		if (slot == null) {
+			slot = profile.slot(node);
+			slots.put(node, slot);
+		}
+		return slot;
+	}
+	
+	private void exit(long start) {
+		long elapsed = System.nanoTime() - start;
+		long self = elapsed - childTime[depth];
+		
+		// a recursive frame takes its total from the outermost run only, which contains the others
+		frame.count++;
+		frame.self += self;
+		if (--frame.active == 0) frame.total += elapsed;
+		
+		frame = callers[depth];
+		childTime[--depth] += elapsed;
+	}
+	
+	/*
+	 * Writes one line per call path, "frame;frame;frame <self microseconds>",
+	 * the input format of flamegraph.pl and speedscope.
+	 */
+	void writeCollapsed(Writer out) throws IOException {
+		List<String> path = new ArrayList<>();
+		List<Object> work = new ArrayList<>();
+		root.addChildren(work);
+		
+		// iterative walk; an Integer marks where to pop the path
+		while (!work.isEmpty()) {
+			Object item = work.remove(work.size() - 1);
+			if (item instanceof Integer) {
+				path.remove(path.size() - 1);
+				continue;
+			}
+			
+			Frame node = (Frame)item;
+			path.add(node.slot.label.replace(';', ','));
+			
+			long micros = node.self / 1000;
+			if (micros > 0) {
+				out.append(String.join(";", path)).append(' ').append(Long.toString(micros)).append('\n');
+			}
+			
+			work.add(0);
+			node.addChildren(work);
+		}
+	}
+	
+	/*
+	 * One node of the call path tree, children keyed by the AST node they
+	 * run. A child entry can point back to an ancestor when recursion was
+	 * folded into it; walks only follow entries whose parent is this frame.
+	 */
+	private static class Frame {
+		final ExecutionProfile.Slot slot;
+		final Frame parent;
+		final Object node;
+		final Map<Object, Frame> children = new IdentityHashMap<>();
+		long count = 0;
+		long total = 0;
+		int active = 0;
+		
+		// self time is kept for the collapsed stacks, the profile gets the part not yet flushed
+		long self = 0;
+		long flushedSelf = 0;
+		
+		Frame(Frame parent, Object node, ExecutionProfile.Slot slot) {
+			this.parent = parent;
+			this.node = node;
+			this.slot = slot;
+		}
+		
+		void addChildren(List<? super Frame> work) {
+			for (Frame child : children.values()) {
+				if (child.parent == this) work.add(child);
+			}
+		}
+	}
+}
@@ -0,0 +1,397 @@
+package com.craftinginterpreter.babylang;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Random BabyLang programs for DifferentialHarness. Well-formed programs
+ * also terminate: loops count a variable nothing else assigns up to a
+ * small bound, and functions only call functions declared before them, so
+ * there is no recursion. They may still fail at run time (mixed types,
+ * division by zero), which is worth comparing too.
+ *
+ * Malformed programs are well-formed ones with a few tokens deleted,
+ * duplicated, swapped or inserted.
+ */
+class ProgramGenerator {
+	private static final String BINARY[] = {
+		"+", "-", "*", "/", "==", "!=", "<", "<=", ">", ">=", "and", "or"
+	};
+	
+	private static final String NOISE[] = {
+		"(", ")", "{", "}", ";", ",", "+", "-", "=", "?", ":", "!", "else", "var", "print",
+		"return", "fun", "@", "\"open", "/* open", "1.", "nil"
+	};
+	
+	private static final String ARITHMETIC[] = { "+", "-", "*", "/" };
+	
+	private static final String WORDS[] = { "a", "bc", "lorem", "", "baby lang" };
+	
+	private final Random random;
+	private StringBuilder out;
+	private int names;
+	
+	// assignable variables per scope, loop counters are only readable
+	private final List<List<String>> scopes = new ArrayList<>();
+	private final List<String> counters = new ArrayList<>();
+	private final List<String> functions = new ArrayList<>();
+	private final List<Integer> arities = new ArrayList<>();
+	private boolean inFunction;
+	
+	ProgramGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+	
+	String wellFormed(int statements) {
+		out = new StringBuilder();
+		names = 0;
+		scopes.clear();
+		scopes.add(new ArrayList<>());
+		counters.clear();
+		functions.clear();
+		arities.clear();
+		inFunction = false;
+		
+		for (int i = 0; i < statements; i++) {
+			if (random.nextInt(6) == 0) {
+				function();
+			} else {
+				statement(0, true);
+			}
+			out.append('\n');
+		}
+		return out.toString();
+	}
+	
+	// source with mutations applied at token boundaries, as the reference scanner sees them
+	String malformed(int statements) {
+		String source = wellFormed(statements);
+		
+		int mutations = 1 + random.nextInt(3);
+		for (int i = 0; i < mutations; i++) {
+			// a bounded scanner reports into its context, which keeps this quiet
+			List<Token> tokens = new Scanner(source, new ExecutionContext(ExecutionLimits.UNBOUNDED)).scanTokens();
+			source = mutate(source, tokens);
+		}
+		return source;
+	}
+	
+	private String mutate(String source, List<Token> tokens) {
+		if (tokens.size() < 2) return source + NOISE[random.nextInt(NOISE.length)];
+		
+		Token token = tokens.get(random.nextInt(tokens.size() - 1));
+		int start = token.getStart();
+		int end = start + token.getLength();
+		String lexeme = source.substring(start, end);
+		
+		switch (random.nextInt(4)) {
+			case 0:
+				return source.substring(0, start) + source.substring(end);
+			case 1:
+				return source.substring(0, end) + " " + lexeme + source.substring(end);
+			case 2: {
+				String noise = NOISE[random.nextInt(NOISE.length)];
+				return source.substring(0, start) + noise + " " + source.substring(start);
+			}
+			default: {
+				int index = tokens.indexOf(token);
+				Token next = tokens.get(index + 1);
+				if (next.getType() == TokenType.EOF) return source.substring(0, start) + source.substring(end);
+				
+				int nextEnd = next.getStart() + next.getLength();
+				return source.substring(0, start) + source.substring(next.getStart(), nextEnd)
+						+ source.substring(end, next.getStart()) + lexeme + source.substring(nextEnd);
+			}
+		}
+	}
+	
+	private void function() {
+		String name = "f" + names++;
+		int arity = random.nextInt(3);
+		
+		out.append("fun ").append(name).append('(');
+		List<String> parameters = new ArrayList<>();
+		for (int i = 0; i < arity; i++) {
+			if (i > 0) out.append(", ");
+			String parameter = "p" + names++;
+			parameters.add(parameter);
+			out.append(parameter);
+		}
+		out.append(") {\n");
+		
+		scopes.add(parameters);
+		inFunction = true;
+		int statements = 1 + random.nextInt(3);
+		for (int i = 0; i < statements; i++) {
+			statement(1, true);
+			out.append('\n');
+		}
+		out.append("return ");
+		value();
+		out.append(";\n}");
+		inFunction = false;
+		scopes.remove(scopes.size() - 1);
+		
+		// declared only now, so the body cannot call itself
+		functions.add(name);
+		arities.add(arity);
+	}
+	
+	// the body of an if or a loop is a statement, not a declaration
+	private void statement(int depth, boolean declaration) {
+		int choice = random.nextInt(depth > 2 ? 4 : 9);
+		if (choice == 0 && !declaration) choice = 1;
+		
+		switch (choice) {
+			case 0: {
+				String name = "v" + names++;
+				out.append("var ").append(name).append(" = ");
+				value();
+				out.append(';');
+				scopes.get(scopes.size() - 1).add(name);
+				break;
+			}
+			case 1:
+				out.append("print ");
+				value();
+				out.append(';');
+				break;
+			case 2: {
+				String name = assignable();
+				if (name == null) {
+					out.append("print ");
+					expression(0);
+					out.append(';');
+				} else {
+					out.append(name).append(" = ");
+					value();
+					out.append(';');
+				}
+				break;
+			}
+			case 3:
+				if (inFunction && random.nextInt(3) == 0) {
+					out.append("return ");
+					expression(1);
+					out.append(';');
+				} else {
+					expression(0);
+					out.append(';');
+				}
+				break;
+			case 4:
+				out.append("if (");
+				expression(1);
+				out.append(") ");
+				statement(depth + 1, false);
+				if (random.nextBoolean()) {
+					out.append(" else ");
+					statement(depth + 1, false);
+				}
+				break;
+			case 5: {
+				String counter = "i" + names++;
+				out.append("for (var ").append(counter).append(" = 0; ").append(counter).append(" < ")
+						.append(1 + random.nextInt(4)).append("; ").append(counter).append(" = ")
+						.append(counter).append(" + 1) ");
+				counters.add(counter);
+				statement(depth + 1, false);
+				counters.remove(counters.size() - 1);
+				break;
+			}
+			case 6: {
+				String counter = "w" + names++;
+				out.append("{ var ").append(counter).append(" = 0; while (").append(counter).append(" < ")
+						.append(1 + random.nextInt(4)).append(") { ");
+				counters.add(counter);
+				scopes.add(new ArrayList<>());
+				statement(depth + 1, true);
+				scopes.remove(scopes.size() - 1);
+				counters.remove(counters.size() - 1);
+				out.append(' ').append(counter).append(" = ").append(counter).append(" + 1; } }");
+				break;
+			}
+			default: {
+				out.append("{ ");
+				scopes.add(new ArrayList<>());
+				int statements = 1 + random.nextInt(3);
+				for (int i = 0; i < statements; i++) {
+					statement(depth + 1, true);
+					out.append(' ');
+				}
+				scopes.remove(scopes.size() - 1);
+				out.append('}');
+				break;
+			}
+		}
+	}
+	
+	// mostly arithmetic, so that programs get some way before a type error stops them
+	private void value() {
+		if (random.nextInt(4) == 0) {
+			expression(0);
+		} else {
+			numeric(0);
+		}
+	}
+	
+	private void numeric(int depth) {
+		int choice = random.nextInt(depth > 3 ? 2 : 6);
+		switch (choice) {
+			case 0:
+				out.append(random.nextInt(100));
+				if (random.nextInt(3) == 0) out.append('.').append(random.nextInt(100));
+				break;
+			case 1:
+				if (counters.isEmpty()) {
+					out.append(random.nextInt(10));
+				} else {
+					out.append(counters.get(random.nextInt(counters.size())));
+				}
+				break;
+			case 2:
+			case 3: {
+				String operator = ARITHMETIC[random.nextInt(ARITHMETIC.length)];
+				numeric(depth + 1);
+				out.append(' ').append(operator).append(' ');
+				
+				// a division by zero now and then, not in most programs
+				if (operator.equals("/") && random.nextInt(10) > 0) {
+					out.append(1 + random.nextInt(99));
+				} else {
+					numeric(depth + 1);
+				}
+				break;
+			}
+			case 4:
+				out.append("-(");
+				numeric(depth + 1);
+				out.append(')');
+				break;
+			default:
+				out.append('(');
+				expression(depth + 1);
+				out.append(" ? ");
+				numeric(depth + 1);
+				out.append(" : ");
+				numeric(depth + 1);
+				out.append(')');
+				break;
+		}
+	}
+	
+	private void expression(int depth) {
+		int choice = random.nextInt(depth > 3 ? 2 : 8);
+		switch (choice) {
+			case 0:
+				literal();
+				break;
+			case 1: {
+				String name = readable();
+				if (name == null) {
+					literal();
+				} else {
+					out.append(name);
+				}
+				break;
+			}
+			case 2:
+			case 3: {
+				// only equality and logic take any operands, the rest want numbers
+				String operator = BINARY[random.nextInt(BINARY.length)];
+				boolean any = operator.equals("==") || operator.equals("!=") || operator.equals("and") || operator.equals("or");
+				if (any || random.nextInt(8) == 0) {
+					expression(depth + 1);
+					out.append(' ').append(operator).append(' ');
+					expression(depth + 1);
+				} else {
+					numeric(depth + 1);
+					out.append(' ').append(operator).append(' ');
+					numeric(depth + 1);
+				}
+				break;
+			}
+			case 4:
+				if (random.nextBoolean()) {
+					out.append('!');
+					expression(depth + 1);
+				} else {
+					out.append('-');
+					numeric(depth + 1);
+				}
+				break;
+			case 5:
+				out.append('(');
+				expression(depth + 1);
+				out.append(')');
+				break;
+			case 6:
+				// a branch cannot hold another conditional unless it is parenthesized
+				out.append('(');
+				expression(depth + 1);
+				out.append(" ? ");
+				expression(depth + 1);
+				out.append(" : ");
+				expression(depth + 1);
+				out.append(')');
+				break;
+			default: {
+				if (functions.isEmpty()) {
+					literal();
+					break;
+				}
+				
+				int function = random.nextInt(functions.size());
+				out.append(functions.get(function)).append('(');
+				for (int i = 0; i < arities.get(function); i++) {
+					if (i > 0) out.append(", ");
+					value();
+				}
+				out.append(')');
+				break;
+			}
+		}
+	}
+	
+	private void literal() {
+		switch (random.nextInt(7)) {
+			case 0:
+			case 1:
+				out.append(random.nextInt(100));
+				break;
+			case 2:
+				out.append(random.nextInt(100)).append('.').append(random.nextInt(100));
+				break;
+			case 3:
+				out.append('"').append(WORDS[random.nextInt(WORDS.length)]).append('"');
+				break;
+			case 4:
+				out.append(random.nextBoolean());
+				break;
+			case 5:
+				out.append("nil");
+				break;
+			default:
+				out.append(random.nextInt(3));
+				break;
+		}
+	}
+	
+	private String assignable() {
+		List<String> candidates = new ArrayList<>();
+		for (List<String> scope : scopes) candidates.addAll(scope);
+		if (candidates.isEmpty()) return null;
+		return candidates.get(random.nextInt(candidates.size()));
+	}
+	
+	private String readable() {
+		String name = assignable();
+		if (!counters.isEmpty() && (name == null || random.nextBoolean())) {
+			name = counters.get(random.nextInt(counters.size()));
+		}
+		return name;
+	}
+}
@@ -0,0 +1,13 @@
+package com.craftinginterpreter.babylang;
+
+// unwinds the interpreter out of a function body, without a stack trace
+class Return extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	
+	final Object value;
+	
+	Return(Object value) {
+		super(null, null, false, false);
+		this.value = value;
+	}
+}
@@ -1,43 +1,78 @@
 package com.craftinginterpreter.babylang;
 
+import java.io.IOException;
+
 import com.craftinginterpreter.babylang.Expr.*;
 import com.craftinginterpreter.babylang.TokenType.*;
 
-class RpnPrinter implements Expr.Visitor<String> {
+class RpnPrinter extends StreamingPrinter implements Expr.Visitor<Void> {
 	String print(Expr expr) {
-		return expr.accept(this);
+		return print((Object)expr);
+	}
+	
+	void print(Expr expr, Appendable out) throws IOException {
+		print((Object)expr, out);
+	}
+	
+	@Override
+	void expand(Object node) {
+		((Expr)node).accept(this);
 	}
 	
+	// the conditional is a ternary operator, written after its three operands
 	@Override
-	public String visitConditional(Conditional expr) {
-		// TODO Auto-generated method stub
+	public Void visitConditional(Conditional expr) {
+		emit(expr.expression, " ", expr.thenStatement, " ", expr.elseStatement, " ?:");
 		return null;
 	}
 
 	@Override
-	public String visitBinary(Binary expr) {
-		return expr.left.accept(this) + " " +
-				expr.right.accept(this) + " " + expr.operator.getLexeme();
+	public Void visitAssign(Assign expr) {
+		emit(expr.value, " ", expr.name.getLexeme(), " =");
+		return null;
 	}
 
 	@Override
-	public String visitGrouping(Grouping expr) {
-		return expr.expression.accept(this);
+	public Void visitBinary(Binary expr) {
+		emit(expr.left, " ", expr.right, " ", expr.operator.getLexeme());
+		return null;
 	}
 
 	@Override
-	public String visitLiteral(Literal expr) {
-		if (expr.value == null) return "nil";
-		return expr.value.toString();
+	public Void visitCall(Call expr) {
+		emit(expr.callee, " call");
+		for (int i = expr.arguments.size() - 1; i >= 0; i--) {
+			emit(expr.arguments.get(i), " ");
+		}
+		return null;
 	}
 
 	@Override
-	public String visitUnary(Unary expr) {
+	public Void visitGrouping(Grouping expr) {
+		emit(expr.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitLiteral(Literal expr) {
+		emit(expr.value == null ? "nil" : expr.value.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitUnary(Unary expr) {
 		String operator = expr.operator.getLexeme();
 		if (expr.operator.getType() == TokenType.MINUS) {
 			operator = "~";
 		}
-		return expr.right.accept(this) + " " + operator;
+		emit(expr.right, " ", operator);
+		return null;
+	}
+
+	@Override
+	public Void visitVariable(Variable expr) {
+		emit(expr.name.getLexeme());
+		return null;
 	}
 
 	
@@ -45,10 +80,12 @@ class RpnPrinter implements Expr.Visitor<String> {
 		Expr expression = new Expr.Binary(
 		        new Expr.Unary(
 		            new Token(TokenType.MINUS, "-", null, 1),
-		            new Expr.Literal(123)),
+		            new Expr.Literal(123),
+		            0),
 		        new Token(TokenType.STAR, "*", null, 1),
 		        new Expr.Grouping(
-		            new Expr.Literal("str")));
+		            new Expr.Literal("str")),
+		        1);
 
 		System.out.println(new RpnPrinter().print(expression));
 	}	
@@ -0,0 +1,14 @@
+package com.craftinginterpreter.babylang;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+class RuntimeError extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	
+	final Token token;
+	
+	RuntimeError(Token token, String message) {
+		super(message);
+		this.token = token;
+	}
+}
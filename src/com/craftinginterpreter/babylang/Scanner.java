@@ -9,11 +9,14 @@ import com.craftinginterpreter.babylang.TokenType.*;
 
 class Scanner {
 	private final String source;
+	private final LineMap lines;
 	private final List<Token> tokens = new ArrayList<>();
 	
-	private static int start = 0;
-	private static int current = 0;
-	private static int line = 1;
+	// null unless the scan is bounded, see ExecutionContext
+	private final ExecutionContext context;
+	
+	private int start = 0;
+	private int current = 0;
 	
 	private static final Map<String, TokenType> keywords;
 
@@ -39,7 +42,15 @@ class Scanner {
 	
 	
 	Scanner(String source) {
+		this(source, null);
+	}
+	
+	Scanner(String source, ExecutionContext context) {
+		if (context != null) context.checkSource(source);
+		
 		this.source = source;
+		this.lines = new LineMap(source);
+		this.context = context;
 	}
 	
 	List<Token> scanTokens() {
@@ -48,10 +59,27 @@ class Scanner {
 			scanToken();
 		}
 		
-		tokens.add(new Token(TokenType.EOF, "", null, line));
+		tokens.add(new Token(TokenType.EOF, "", null, current, lines));
 		return tokens;
 	}
 
+	// publishes the tokens into the ring in batches while scanning, for a parser on another thread
+	void scanTokens(TokenRing ring, int batchSize) {
+		while(!isAtEnd()) {
+			start = current;
+			scanToken();
+			
+			if (tokens.size() >= batchSize) {
+				if (!ring.publish(tokens)) return;
+				tokens.clear();
+			}
+		}
+		
+		tokens.add(new Token(TokenType.EOF, "", null, current, lines));
+		ring.publish(tokens);
+		tokens.clear();
+	}
+
 	private boolean isAtEnd() {
 		return current >= source.length();
 	}
@@ -89,11 +117,6 @@ class Scanner {
 				addToken(match('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER); break;
 			case '<':
 				addToken(match('=') ? TokenType.LESS_EQUAL : TokenType.LESS); break;
-			case 'o':
-				if (match('r')) {
-					addToken(TokenType.OR);
-				}
-				break;
 			
 			// SLASH
 			case '/':
@@ -102,7 +125,6 @@ class Scanner {
 						advance();
 					}
 				} else if (match('*')) {
-					// TODO implements /* */
 					command();
 				} else {
 					addToken(TokenType.SLASH);
@@ -112,9 +134,8 @@ class Scanner {
 			case ' ':
 			case '\r':
 			case '\t':
+			case '\n':
 				break;
-			
-			case '\n': line++; break;
 				
 			// Literals STRING
 			case '"': string(); break;
@@ -126,7 +147,7 @@ class Scanner {
 				} else if (isAlpha(c)) {
 					identifier();
 				} else {
-					BabyLang.error(line, "Unexpected character.");
+					error("Unexpected character.");
 				}
 				
 				break;
@@ -168,17 +189,23 @@ class Scanner {
 			return;
 		}
 		
-		addToken(TokenType.NUMBER, Integer.parseInt(source.substring(start, current)));
+		try {
+			addToken(TokenType.NUMBER, Integer.parseInt(source.substring(start, current)));
+		} catch (NumberFormatException e) {
+			// still a number to the parser, so the only error is this one
+			error("Number literal out of range.");
+			addToken(TokenType.NUMBER, 0);
+		}
 	}
 	
 	private void command() {
-		while (peek() != '*' && peekNext() != '/' && !isAtEnd()) {
-			if (peek() != '\n') line++;
+		while (!(peek() == '*' && peekNext() == '/') && !isAtEnd()) {
 			advance();
 		}
 		
 		if (isAtEnd()) {
-			BabyLang.error(line, "Unexpected end command.");
+			error("Unexpected end command.");
+			return;
 		}
 		
 		advance();advance();
@@ -186,17 +213,19 @@ class Scanner {
 
 	private void string() {
 		while (peek() != '"' && !isAtEnd()) {
-			if (peek() != '\n') line++;
 			advance();
 		}
 		
 		if (isAtEnd()) {
-			BabyLang.error(line, "Underminated string.");
+			error("Underminated string.");
+			return;
 		}
 		
 		// skip to "
 		advance();
 		
+		if (context != null) context.checkString(current - start - 2);
+		
 		// trim surrounding quotes
 		String value = this.source.substring(start + 1, current - 1);
 		addToken(TokenType.STRING, value);
@@ -226,8 +255,18 @@ class Scanner {
 	}
 	
 	private void addToken(TokenType type, Object literal) {
+		if (context != null) context.token();
+		
 		String text = this.source.substring(start, current);
-		tokens.add(new Token(type, text, literal, line));
+		tokens.add(new Token(type, text, literal, start, lines));
+	}
+	
+	private void error(String message) {
+		if (context != null) {
+			context.syntaxError(BabyLang.format(lines, start, "", message));
+		} else {
+			BabyLang.error(lines, start, message);
+		}
 	}
 
 	private char advance() {
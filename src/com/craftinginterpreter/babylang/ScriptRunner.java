@@ -0,0 +1,155 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Runs untrusted scripts concurrently, each under its own ExecutionLimits.
+ * A run scans, parses and interprets on one thread with one
+ * ExecutionContext, so a script that goes over a limit fails on its own
+ * and the others keep going; its output and diagnostics are captured in
+ * the Result rather than printed.
+ *
+ * Scripts run on virtual threads when the JDK has them (21 and later),
+ * looked up reflectively so this still builds for 17, otherwise on one
+ * platform thread per core. The contexts yield every yieldInterval units
+ * of work, and cancelling the Future interrupts the script at its next
+ * yield. Only virtual threads share fairly: on the platform pool
+ * Thread.yield cannot start a queued script, so a slow one holds its
+ * thread until it ends or hits a limit, and the scripts behind it wait.
+ */
+class ScriptRunner implements AutoCloseable {
+	enum Status {
+		OK, SYNTAX_ERROR, RUNTIME_ERROR, LIMIT_EXCEEDED, INTERNAL_ERROR
+	}
+	
+	static class Result {
+		final Status status;
+		final String output;
+		final List<String> diagnostics;
+		final long steps;
+		
+		// time spent waiting for a thread after submit(), and running
+		final long queued;
+		final long nanos;
+		
+		Result(Status status, String output, List<String> diagnostics, long steps, long queued, long nanos) {
+			this.status = status;
+			this.output = output;
+			this.diagnostics = diagnostics;
+			this.steps = steps;
+			this.queued = queued;
+			this.nanos = nanos;
+		}
+	}
+	
+	private final ExecutorService executor;
+	final boolean virtualThreads;
+	
+	ScriptRunner() {
+		ExecutorService virtual = virtualExecutor();
+		this.virtualThreads = virtual != null;
+		this.executor = virtual != null
+				? virtual
+				: Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+	}
+	
+	Future<Result> submit(String source, ExecutionLimits limits) {
+		long submitted = System.nanoTime();
+		return executor.submit(() -> run(source, limits, submitted));
+	}
+	
+	// runs a script on the calling thread
+	static Result run(String source, ExecutionLimits limits) {
+		return run(source, limits, System.nanoTime());
+	}
+	
+	private static Result run(String source, ExecutionLimits limits, long submitted) {
+		long start = System.nanoTime();
+		ExecutionContext context = new ExecutionContext(limits);
+		BoundedOutput output = new BoundedOutput(limits.maxOutputLength);
+		
+		Status status;
+		String failure = null;
+		try {
+			List<Token> tokens = new Scanner(source, context).scanTokens();
+			List<Stmt> statements = new Parser(tokens, context).parseProgram();
+			
+			if (context.hadSyntaxError()) {
+				status = Status.SYNTAX_ERROR;
+			} else {
+				PrintStream out = new PrintStream(output, false, StandardCharsets.UTF_8);
+				new BoundedInterpreter(context, out).interpret(statements);
+				out.flush();
+				status = context.hadRuntimeError() ? Status.RUNTIME_ERROR : Status.OK;
+			}
+		} catch (LimitExceeded error) {
+			status = Status.LIMIT_EXCEEDED;
+			failure = "Limit exceeded: " + error.getMessage();
+		} catch (StackOverflowError error) {
+			// the nesting and call depth limits are meant to prevent this, but a small thread stack may still run out
+			status = Status.LIMIT_EXCEEDED;
+			failure = "Limit exceeded: Stack exhausted.";
+		} catch (RuntimeException error) {
+			// a bug in the interpreter fails this script, not the caller running many
+			status = Status.INTERNAL_ERROR;
+			failure = "Internal error: " + error;
+		}
+		
+		List<String> diagnostics = context.diagnostics();
+		if (failure != null) diagnostics.add(failure);
+		
+		return new Result(status, output.toString(StandardCharsets.UTF_8), diagnostics,
+				context.steps(), start - submitted, System.nanoTime() - start);
+	}
+	
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+	
+	// a new virtual thread per task, or null before JDK 21
+	static ExecutorService virtualExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+	
+	// the captured output, which a script may not grow past its limit
+	private static class BoundedOutput extends ByteArrayOutputStream {
+		private final int limit;
+		
+		BoundedOutput(int limit) {
+			this.limit = limit;
+		}
+		
+		@Override
+		public synchronized void write(int b) {
+			check(1);
+			super.write(b);
+		}
+		
+		@Override
+		public synchronized void write(byte b[], int off, int len) {
+			check(len);
+			super.write(b, off, len);
+		}
+		
+		private void check(int length) {
+			if (count + length > limit) {
+				throw new LimitExceeded("Output longer than " + limit + " bytes.");
+			}
+		}
+	}
+}
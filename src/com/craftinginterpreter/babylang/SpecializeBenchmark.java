@@ -0,0 +1,90 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Times a script on the plain Interpreter ("generic") and on the
+ * SpecializingInterpreter ("specialize"), each mode in its own JVM like
+ * ProfilerBenchmark. See scripts/specialize-bench.sh.
+ *
+ * The script is a file, or one of the built-in ones: "fib" (the default)
+ * runs fib(20) five times, "arith" runs a loop that is mostly int and
+ * double arithmetic, and "flip" calls one function with ints and then
+ * with doubles so its sites respecialize.
+ *
+ * usage: SpecializeBenchmark <generic | specialize> [fib | arith | flip | script] [runs]
+ */
+class SpecializeBenchmark {
+	private static final String FIB =
+		"fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n" +
+		"var i = 0;\n" +
+		"while (i < 5) { print fib(20); i = i + 1; }\n";
+	
+	private static final String ARITH =
+		"var i = 0;\n" +
+		"var x = 0.5;\n" +
+		"var n = 1;\n" +
+		"while (i < 20000) {\n" +
+		"  x = ((x * 0.999 + 1.5) / 1.001 - 0.5 * 0.25 + 0.125) * (1.0 - 0.5 / 4.0) + 0.75 * 0.5 - 0.25 / 2.0;\n" +
+		"  n = ((n * 31 + i * 7 - 3) / 2 - n / 3) * (5 - 4) + 2 * 3 - 6 + 10 / 5 - 2;\n" +
+		"  if (n == 0) n = 1;\n" +
+		"  i = i + 1;\n" +
+		"}\n" +
+		"print x;\n" +
+		"print n;\n";
+	
+	private static final String FLIP =
+		"fun sum(a, b, n) { var t = a; while (n > 0) { t = t + b; n = n - 1; } return t; }\n" +
+		"print sum(0, 1, 50000);\n" +
+		"print sum(0.5, 1.5, 50000);\n";
+	
+	public static void main(String args[]) throws IOException {
+		if (args.length < 1 || !(args[0].equals("generic") || args[0].equals("specialize"))) {
+			System.out.println("Usage: SpecializeBenchmark <generic | specialize> [fib | arith | flip | script] [runs]");
+			System.exit(64);
+		}
+	
+		String script = args.length > 1 ? args[1] : "fib";
+		String source = script.equals("fib") ? FIB
+				: script.equals("arith") ? ARITH
+				: script.equals("flip") ? FLIP
+				: new String(Files.readAllBytes(Paths.get(script)), StandardCharsets.UTF_8);
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+	
+		List<Stmt> statements = new Parser(new Scanner(source).scanTokens()).parseProgram();
+		if (BabyLang.hadError) System.exit(65);
+	
+		PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+	
+		long median;
+		if (args[0].equals("generic")) {
+			median = phase(runs, () -> new Interpreter(discard).interpret(statements));
+		} else {
+			median = phase(runs, () -> new SpecializingInterpreter(discard).interpret(statements));
+		}
+	
+		System.out.printf("%-10s %8.2f ms median%n", args[0], median / 1e6);
+	}
+	
+	private static long phase(int runs, Runnable run) {
+		// warm up until the phase's code is compiled
+		for (int i = 0; i < runs; i++) run.run();
+	
+		long times[] = new long[runs];
+		for (int i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			run.run();
+			times[i] = System.nanoTime() - start;
+		}
+	
+		Arrays.sort(times);
+		return times[runs / 2];
+	}
+}
@@ -0,0 +1,225 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.craftinginterpreter.babylang.Expr.*;
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Interpreter whose Binary and Unary nodes specialize on the operand types
+ * they see. Each node gets a TypeProfile; while the operands keep the
+ * types seen last, the node runs a type-specific fast path (int+int,
+ * double*double, string concatenation, !boolean) instead of the generic
+ * dispatch. A mismatch runs the generic path once and respecializes, see
+ * TypeProfile.
+ *
+ * Profiles belong to the interpreter, not to the tree, so several
+ * interpreters can run the same statements without sharing feedback.
+ * They are kept in an array indexed by the site number the parser gives
+ * each node.
+ */
+class SpecializingInterpreter extends Interpreter {
+	private TypeProfile profiles[] = new TypeProfile[64];
+	private int sites = 0;
+	
+	SpecializingInterpreter() {
+		super();
+	}
+	
+	SpecializingInterpreter(PrintStream out) {
+		super(out);
+	}
+	
+	@Override
+	public Object visitBinary(Binary expr) {
+		TokenType type = expr.operator.getType();
+		if (type == TokenType.AND || type == TokenType.OR) {
+			return super.visitBinary(expr);
+		}
+		
+		Object left = operand(expr.left);
+		Object right = operand(expr.right);
+		
+		TypeProfile profile = profile(expr.site, expr.operator);
+		
+		switch (profile.state) {
+			case INT:
+				if (left instanceof Integer && right instanceof Integer) {
+					profile.hits++;
+					return intBinary(expr.operator, (Integer)left, (Integer)right);
+				}
+				break;
+			case DOUBLE:
+				if (left instanceof Double && right instanceof Double) {
+					profile.hits++;
+					return doubleBinary(type, (Double)left, (Double)right);
+				}
+				break;
+			case STRING:
+				if (left instanceof String && right instanceof String) {
+					profile.hits++;
+					return (String)left + (String)right;
+				}
+				break;
+			default:
+				break;
+		}
+		
+		return binaryMiss(profile, expr.operator, left, right);
+	}
+	
+	@Override
+	public Object visitUnary(Unary expr) {
+		Object right = operand(expr.right);
+		
+		TypeProfile profile = profile(expr.site, expr.operator);
+		
+		switch (profile.state) {
+			case INT:
+				if (right instanceof Integer) {
+					profile.hits++;
+					return -(Integer)right;
+				}
+				break;
+			case DOUBLE:
+				if (right instanceof Double) {
+					profile.hits++;
+					return -(Double)right;
+				}
+				break;
+			case BOOLEAN:
+				if (right instanceof Boolean) {
+					profile.hits++;
+					return !(Boolean)right;
+				}
+				break;
+			default:
+				break;
+		}
+		
+		return unaryMiss(profile, expr.operator, right);
+	}
+	
+	void report(PrintStream out) {
+		int specialized = 0;
+		int deoptimized = 0;
+		long executions = 0;
+		long hits = 0;
+		
+		List<TypeProfile> sorted = new ArrayList<>(sites);
+		for (TypeProfile profile : profiles) {
+			if (profile == null) continue;
+			sorted.add(profile);
+			if (profile.specializations > 0) specialized++;
+			if (profile.deopts > 0) deoptimized++;
+			executions += profile.executions();
+			hits += profile.hits;
+		}
+		
+		out.printf("%d sites, %d specialized, %d deoptimized, %d of %d executions on a fast path%n",
+				sites, specialized, deoptimized, hits, executions);
+		
+		sorted.sort(Comparator.comparingLong(TypeProfile::executions).reversed()
+				.thenComparingInt(profile -> profile.operator.getStart()));
+		for (TypeProfile profile : sorted) {
+			out.printf("  %5d:%-4d %-3s %-8s executions=%d hits=%d specializations=%d deopts=%d%n",
+					profile.operator.getLine(), profile.operator.getColumn(), profile.operator.getLexeme(),
+					profile.state, profile.executions(), profile.hits, profile.specializations, profile.deopts);
+		}
+	}
+	
+	// the slow paths are kept apart so the fast ones stay small enough to compile well
+	private Object binaryMiss(TypeProfile profile, Token operator, Object left, Object right) {
+		profile.misses++;
+		if (profile.state != TypeProfile.State.GENERIC) {
+			profile.respecialize(binaryState(operator.getType(), left, right));
+		}
+		return binary(operator, left, right);
+	}
+	
+	private Object unaryMiss(TypeProfile profile, Token operator, Object right) {
+		profile.misses++;
+		if (profile.state != TypeProfile.State.GENERIC) {
+			profile.respecialize(unaryState(operator.getType(), right));
+		}
+		return unary(operator, right);
+	}
+	
+	// literals and variables are read in place, the rest goes through the visitor
+	private Object operand(Expr expr) {
+		if (expr instanceof Literal) return ((Literal)expr).value;
+		if (expr instanceof Variable) return visitVariable((Variable)expr);
+		return evaluate(expr);
+	}
+	
+	private TypeProfile profile(int site, Token operator) {
+		if (site >= profiles.length) {
+			profiles = Arrays.copyOf(profiles, Math.max(site + 1, profiles.length * 2));
+		}
+		
+		TypeProfile profile = profiles[site];
+		if (profile == null) {
+			profile = new TypeProfile(operator);
+			profiles[site] = profile;
+			sites++;
+		}
+		return profile;
+	}
+	
+	private static TypeProfile.State binaryState(TokenType type, Object left, Object right) {
+		if (left instanceof Integer && right instanceof Integer) return TypeProfile.State.INT;
+		if (left instanceof Double && right instanceof Double) return TypeProfile.State.DOUBLE;
+		if (type == TokenType.PLUS && left instanceof String && right instanceof String) {
+			return TypeProfile.State.STRING;
+		}
+		
+		return TypeProfile.State.GENERIC;
+	}
+	
+	private static TypeProfile.State unaryState(TokenType type, Object right) {
+		if (type == TokenType.MINUS && right instanceof Integer) return TypeProfile.State.INT;
+		if (type == TokenType.MINUS && right instanceof Double) return TypeProfile.State.DOUBLE;
+		if (type == TokenType.BANG && right instanceof Boolean) return TypeProfile.State.BOOLEAN;
+		
+		return TypeProfile.State.GENERIC;
+	}
+	
+	// must agree with Interpreter.binary() for two Integers
+	private static Object intBinary(Token operator, int a, int b) {
+		switch (operator.getType()) {
+			case PLUS: return a + b;
+			case MINUS: return a - b;
+			case STAR: return a * b;
+			case SLASH:
+				if (b == 0) throw new RuntimeError(operator, "Division by zero.");
+				return a / b;
+			case GREATER: return a > b;
+			case GREATER_EQUAL: return a >= b;
+			case LESS: return a < b;
+			case LESS_EQUAL: return a <= b;
+			case EQUAL_EQUAL: return a == b;
+			case BANG_EQUAL: return a != b;
+			default:
+				throw new RuntimeError(operator, "Operands must be numbers.");
+		}
+	}
+	
+	private static Object doubleBinary(TokenType type, double a, double b) {
+		switch (type) {
+			case PLUS: return a + b;
+			case MINUS: return a - b;
+			case STAR: return a * b;
+			case SLASH: return a / b;
+			case GREATER: return a > b;
+			case GREATER_EQUAL: return a >= b;
+			case LESS: return a < b;
+			case LESS_EQUAL: return a <= b;
+			case EQUAL_EQUAL: return a == b;
+			default: return a != b;
+		}
+	}
+}
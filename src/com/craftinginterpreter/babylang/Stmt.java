@@ -0,0 +1,140 @@
+package com.craftinginterpreter.babylang;
+
+import java.util.List;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+abstract class Stmt {
+
+	interface Visitor<R> {
+		R visitBlock(Block stmt);
+		R visitExpression(Expression stmt);
+		R visitFunction(Function stmt);
+		R visitIf(If stmt);
+		R visitPrint(Print stmt);
+		R visitReturn(Return stmt);
+		R visitVar(Var stmt);
+		R visitWhile(While stmt);
+	}
+
+	abstract <R> R accept(Visitor<R> visitor);
+
+	static class Block extends Stmt {
+		Block(List<Stmt> statements) {
+			this.statements = statements;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitBlock(this);
+		}
+
+		final List<Stmt> statements;
+	}
+
+	static class Expression extends Stmt {
+		Expression(Expr expression) {
+			this.expression = expression;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitExpression(this);
+		}
+
+		final Expr expression;
+	}
+
+	static class Function extends Stmt {
+		Function(Token name, List<Token> params, List<Stmt> body) {
+			this.name = name;
+			this.params = params;
+			this.body = body;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitFunction(this);
+		}
+
+		final Token name;
+		final List<Token> params;
+		final List<Stmt> body;
+	}
+
+	static class If extends Stmt {
+		If(Expr condition, Stmt thenBranch, Stmt elseBranch) {
+			this.condition = condition;
+			this.thenBranch = thenBranch;
+			this.elseBranch = elseBranch;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitIf(this);
+		}
+
+		final Expr condition;
+		final Stmt thenBranch;
+		final Stmt elseBranch;
+	}
+
+	static class Print extends Stmt {
+		Print(Expr expression) {
+			this.expression = expression;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitPrint(this);
+		}
+
+		final Expr expression;
+	}
+
+	static class Return extends Stmt {
+		Return(Token keyword, Expr value) {
+			this.keyword = keyword;
+			this.value = value;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitReturn(this);
+		}
+
+		final Token keyword;
+		final Expr value;
+	}
+
+	static class Var extends Stmt {
+		Var(Token name, Expr initializer) {
+			this.name = name;
+			this.initializer = initializer;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitVar(this);
+		}
+
+		final Token name;
+		final Expr initializer;
+	}
+
+	static class While extends Stmt {
+		While(Expr condition, Stmt body) {
+			this.condition = condition;
+			this.body = body;
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitWhile(this);
+		}
+
+		final Expr condition;
+		final Stmt body;
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+
+/*
+ * Base for the printers. Instead of returning a string per node, a visit
+ * pushes the node's pieces (text and child nodes) onto a work stack that
+ * print() drains into one Appendable. Output is written in a single pass
+ * and deep trees do not recurse on the Java stack.
+ */
+abstract class StreamingPrinter {
+	private final ArrayDeque<Object> work = new ArrayDeque<>();
+
+	abstract void expand(Object node);
+
+	void print(Object root, Appendable out) throws IOException {
+		work.clear();
+		work.push(root);
+
+		while (!work.isEmpty()) {
+			Object item = work.pop();
+			if (item instanceof String) {
+				out.append((String)item);
+			} else {
+				expand(item);
+			}
+		}
+	}
+
+	String print(Object root) {
+		StringBuilder builder = new StringBuilder();
+		try {
+			print(root, builder);
+		} catch (IOException error) {
+			throw new UncheckedIOException(error);
+		}
+
+		return builder.toString();
+	}
+
+	// schedules the pieces so they are written left to right
+	void emit(Object...pieces) {
+		for (int i = pieces.length - 1; i >= 0; i--) {
+			work.push(pieces[i]);
+		}
+	}
+}
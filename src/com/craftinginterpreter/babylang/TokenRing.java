@@ -0,0 +1,120 @@
+package com.craftinginterpreter.babylang;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Bounded single-producer / single-consumer ring of tokens. The scanner
+ * thread publishes batches and the parser thread reads them through
+ * TokenSource. Neither side takes a lock: the producer releases a batch by
+ * moving tail, the consumer frees slots by moving head, and each side only
+ * re-reads the other's counter when its cached copy runs out.
+ */
+class TokenRing implements TokenSource {
+	private static final int SPINS = 100;
+	
+	private final Token buffer[];
+	private final int mask;
+	
+	// slots below head are free again, slots below tail are published
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	
+	private volatile boolean closed = false;
+	private volatile boolean cancelled = false;
+	private volatile Throwable failure = null;
+	
+	// producer side
+	private long published = 0;
+	private long cachedHead = 0;
+	
+	// consumer side
+	private long cachedTail = 0;
+	private long released = 0;
+	
+	TokenRing(int capacity) {
+		if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Ring capacity must be a power of two.");
+		}
+		
+		this.buffer = new Token[capacity];
+		this.mask = capacity - 1;
+	}
+	
+	// returns false once the consumer has gone away
+	boolean publish(List<Token> batch) {
+		int count = batch.size();
+		int written = 0;
+		int spins = 0;
+		
+		while (written < count) {
+			if (cancelled) return false;
+			
+			long free = buffer.length - (published - cachedHead);
+			if (free == 0) {
+				cachedHead = head.get();
+				if (buffer.length - (published - cachedHead) == 0) {
+					spins = backOff(spins);
+				}
+				continue;
+			}
+			
+			int chunk = (int)Math.min(free, count - written);
+			for (int i = 0; i < chunk; i++) {
+				buffer[(int)((published + i) & mask)] = batch.get(written + i);
+			}
+			
+			written += chunk;
+			published += chunk;
+			tail.lazySet(published);
+			spins = 0;
+		}
+		
+		return true;
+	}
+	
+	// called by the producer when it is done, with the error that stopped it if any
+	void close(Throwable failure) {
+		this.failure = failure;
+		this.closed = true;
+	}
+	
+	// called by the consumer when it will not read any more
+	void cancel() {
+		cancelled = true;
+	}
+	
+	@Override
+	public Token get(int index) {
+		// the parser never looks further back than the previous token
+		if (index - 1 > released) {
+			released = index - 1;
+			head.lazySet(released);
+		}
+		
+		int spins = 0;
+		while (index >= cachedTail) {
+			boolean done = closed;
+			cachedTail = tail.get();
+			if (index < cachedTail) break;
+			
+			if (done) {
+				throw new IllegalStateException("Scanner stopped before token " + index + ".", failure);
+			}
+			spins = backOff(spins);
+		}
+		
+		return buffer[index & mask];
+	}
+	
+	private static int backOff(int spins) {
+		if (spins < SPINS) {
+			Thread.onSpinWait();
+		} else {
+			Thread.yield();
+		}
+		return spins + 1;
+	}
+}
@@ -0,0 +1,11 @@
+package com.craftinginterpreter.babylang;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * What the parser reads tokens from. Indexes only move forward, apart from
+ * looking back at the token just consumed.
+ */
+interface TokenSource {
+	Token get(int index);
+}
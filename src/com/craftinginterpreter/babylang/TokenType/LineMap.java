@@ -0,0 +1,81 @@
+package com.craftinginterpreter.babylang.TokenType;
+
+/*
+ * Maps source offsets to lines and columns. Tokens only store their start
+ * offset; the table of line starts is built the first time a position is
+ * asked for (usually by a diagnostic), and lookups are a binary search.
+ */
+public final class LineMap {
+	private final String source;
+	private final int firstLine;
+	private volatile int lineStarts[];
+	
+	public LineMap(String source) {
+		this(source, 1);
+	}
+	
+	private LineMap(String source, int firstLine) {
+		this.source = source;
+		this.firstLine = firstLine;
+	}
+	
+	// for tokens made outside the scanner, which only know their line
+	public static LineMap atLine(int line) {
+		return new LineMap("", line);
+	}
+	
+	public int lineOf(int offset) {
+		return firstLine + index(offset);
+	}
+	
+	public int columnOf(int offset) {
+		return offset - lineStarts()[index(offset)] + 1;
+	}
+	
+	public String lineText(int line) {
+		int starts[] = lineStarts();
+		int index = line - firstLine;
+		if (index < 0 || index >= starts.length) return "";
+		
+		int end = index + 1 < starts.length ? starts[index + 1] - 1 : source.length();
+		if (end > starts[index] && source.charAt(end - 1) == '\r') end--;
+		return source.substring(starts[index], end);
+	}
+	
+	private int index(int offset) {
+		int starts[] = lineStarts();
+		int low = 0;
+		int high = starts.length - 1;
+		
+		// last line start that is <= offset
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (starts[middle] <= offset) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		
+		return low;
+	}
+	
+	private int[] lineStarts() {
+		int starts[] = lineStarts;
+		if (starts != null) return starts;
+		
+		int count = 1;
+		for (int i = source.indexOf('\n'); i >= 0; i = source.indexOf('\n', i + 1)) {
+			count++;
+		}
+		
+		starts = new int[count];
+		count = 1;
+		for (int i = source.indexOf('\n'); i >= 0; i = source.indexOf('\n', i + 1)) {
+			starts[count++] = i + 1;
+		}
+		
+		lineStarts = starts;
+		return starts;
+	}
+}
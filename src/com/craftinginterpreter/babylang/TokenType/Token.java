@@ -4,13 +4,19 @@ public class Token {
 	final TokenType type;
 	final String lexeme;
 	final Object literal;
-	final int line;
+	final int start;
+	final LineMap lines;
 	
-	public Token(TokenType type, String lexeme, Object literal, int line) {
+	public Token(TokenType type, String lexeme, Object literal, int start, LineMap lines) {
 		this.type = type;
 		this.lexeme = lexeme;
 		this.literal = literal;
-		this.line = line;
+		this.start = start;
+		this.lines = lines;
+	}
+	
+	public Token(TokenType type, String lexeme, Object literal, int line) {
+		this(type, lexeme, literal, 0, LineMap.atLine(line));
 	}
 	
 	public String toString() {
@@ -29,7 +35,23 @@ public class Token {
 		return this.literal;
 	}
 	
+	public int getStart() {
+		return this.start;
+	}
+	
+	public int getLength() {
+		return this.lexeme.length();
+	}
+	
+	public LineMap getLines() {
+		return this.lines;
+	}
+	
 	public int getLine() {
-		return this.line;
+		return this.lines.lineOf(this.start);
+	}
+	
+	public int getColumn() {
+		return this.lines.columnOf(this.start);
 	}
 }
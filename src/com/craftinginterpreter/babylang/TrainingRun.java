@@ -0,0 +1,95 @@
+package com.craftinginterpreter.babylang;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.List;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Exercises the scanner, both parsers, the printers and the plain,
+ * specializing and profiling interpreters so a training run (see
+ * scripts/build-cds.sh) loads every class a normal invocation needs before
+ * the class data sharing archive or AOT cache is dumped.
+ */
+public class TrainingRun {
+	private static final String EXPRESSIONS[] = {
+		"(1 + 2) * (3 + 4)",
+		"-123 * (45.67 / 8) >= 10 == !false",
+		"\"baby\" + \"lang\" != nil and 1 < 2 or 3 <= 4",
+		"1 > 2 ? \"yes\" : \"no\" // trailing comment",
+		"/* block */ 1 - 2 - 3",
+		"+ 1",
+		"(1 + ",
+	};
+
+	private static final String PROGRAM =
+		"var total = 0;\n" +
+		"fun add(a, b) { return a + b; }\n" +
+		"for (var i = 0; i < 10; i = i + 1) { total = add(total, i); }\n" +
+		"while (total > 100) total = total - 1;\n" +
+		"if (total == 45) print \"ok\"; else print total;\n";
+
+	// ends in a runtime error, for the error reporting path
+	private static final String FAILING =
+		"var s = \"baby\" + \"lang\";\n" +
+		"print -s;\n";
+
+	public static void main(String args[]) throws IOException {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+		System.setOut(discard);
+		System.setErr(discard);
+
+		try {
+			for (int i = 0; i < iterations; i++) {
+				train();
+			}
+		} finally {
+			System.setOut(out);
+			System.setErr(err);
+			BabyLang.hadError = false;
+			BabyLang.hadRuntimeError = false;
+		}
+	}
+
+	private static void train() throws IOException {
+		for (String source : EXPRESSIONS) {
+			List<Token> tokens = new Scanner(source).scanTokens();
+			for (Token token : tokens) {
+				System.out.println(token.getType() + " " + token.getLexeme() + " " + token.getLine());
+			}
+
+			Expr expression = new Parser(tokens).parse();
+			if (expression == null) continue;
+
+			System.out.println(new AstPrinter().print(expression));
+			System.out.println(new RpnPrinter().print(expression));
+		}
+
+		List<Token> tokens = new Scanner(PROGRAM).scanTokens();
+		System.out.print(new AstPrinter().print(new Parser(tokens).parseProgram()));
+		System.out.print(new AstPrinter().print(new ParallelParser(tokens).parse()));
+
+		// --run, --specialize and --profile
+		for (String source : new String[] { PROGRAM, FAILING }) {
+			List<Stmt> statements = new Parser(new Scanner(source).scanTokens()).parseProgram();
+			new Interpreter().interpret(statements);
+
+			SpecializingInterpreter specializing = new SpecializingInterpreter();
+			specializing.interpret(statements);
+			specializing.report(System.err);
+
+			ExecutionProfile profile = new ExecutionProfile();
+			ProfilingInterpreter profiling = new ProfilingInterpreter(profile);
+			profiling.interpret(statements);
+			profile.report(System.err, 20);
+			profiling.writeCollapsed(Writer.nullWriter());
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.craftinginterpreter.babylang;
+
+import com.craftinginterpreter.babylang.TokenType.*;
+
+/*
+ * Type feedback for one Binary or Unary site. The first execution picks a
+ * specialized state from the operand types; an execution whose operands
+ * do not fit that state deoptimizes the site, which then specializes on
+ * the new types. A site that keeps changing types is left GENERIC.
+ */
+class TypeProfile {
+	enum State { UNINITIALIZED, INT, DOUBLE, STRING, BOOLEAN, GENERIC }
+	
+	static final int MAX_DEOPTS = 4;
+	
+	final Token operator;
+	State state = State.UNINITIALIZED;
+	
+	// executions on the fast path and off it, counted apart so a hit costs one increment
+	long hits = 0;
+	long misses = 0;
+	int specializations = 0;
+	int deopts = 0;
+	
+	TypeProfile(Token operator) {
+		this.operator = operator;
+	}
+	
+	long executions() {
+		return hits + misses;
+	}
+	
+	// after an execution whose operands did not fit, with the state that would fit them
+	void respecialize(State fitting) {
+		if (state != State.UNINITIALIZED) {
+			deopts++;
+			if (deopts >= MAX_DEOPTS) fitting = State.GENERIC;
+		}
+		
+		state = fitting;
+		if (fitting != State.GENERIC) specializations++;
+	}
+}
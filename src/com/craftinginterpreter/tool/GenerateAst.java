@@ -15,10 +15,25 @@ public class GenerateAst {
 		String outputDir = args[0];
 		
 		defineAst(outputDir, "Expr", Arrays.asList(
-			"Binary: Expr left, Token operator, Expr right",
+			"Conditional: Expr expression, Expr thenStatement, Expr elseStatement",
+			"Assign: Token name, Expr value",
+			"Binary: Expr left, Token operator, Expr right, int site",
+			"Call: Expr callee, Token paren, List<Expr> arguments",
 			"Grouping: Expr expression",
 			"Literal: Object value",
-			"Unary: Token operator, Expr right"
+			"Unary: Token operator, Expr right, int site",
+			"Variable: Token name"
+		));
+		
+		defineAst(outputDir, "Stmt", Arrays.asList(
+			"Block: List<Stmt> statements",
+			"Expression: Expr expression",
+			"Function: Token name, List<Token> params, List<Stmt> body",
+			"If: Expr condition, Stmt thenBranch, Stmt elseBranch",
+			"Print: Expr expression",
+			"Return: Token keyword, Expr value",
+			"Var: Token name, Expr initializer",
+			"While: Expr condition, Stmt body"
 		));
 	}
 
@@ -28,6 +43,8 @@ public class GenerateAst {
 		
 		writer.println("package com.craftinginterpreter.babylang;");
 		writer.println();
+		writer.println("import java.util.List;");
+		writer.println();
 		writer.println("import com.craftinginterpreter.babylang.TokenType.*;");
 		writer.println();
 		
@@ -0,0 +1,317 @@
+package com.craftinginterpreter.tool;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Writes synthetic BabyLang sources following the grammar in Parser.
+ * The output is streamed while it is generated, so the size of the corpus
+ * is only bounded by the disk. Loops in program mode count a variable of
+ * their own up to a small bound, so a corpus can be run as well as parsed.
+ *
+ * options:
+ *   --size=N          stop after about N bytes (suffixes k, m and g are allowed)
+ *   --mode=M          "program" for declarations, "expression" for one long expression
+ *   --ops=OP:W,...    binary operators with their weights, "?" stands for a conditional
+ *   --unary=P         chance of prefixing an operand with "-" or "!"
+ *   --depth=N         maximum nesting depth of an expression
+ *   --literals=T,...  operands to use: int, double, string, bool, nil, ident
+ *   --comments=P      chance of a comment between two statements or operands
+ *   --seed=N          seed for the random generator, the same seed gives the same file
+ */
+public class GenerateCorpus {
+	private static final String WORDS[] = {
+		"alpha", "beta", "gamma", "delta", "lorem", "ipsum", "baby", "lang", "token", "parse"
+	};
+
+	private final Writer writer;
+	private final Random random;
+	private final long size;
+	private final boolean program;
+	private final List<String> operators;
+	private final List<Integer> weights;
+	private final int totalWeight;
+	private final int binaryWeight;
+	private final double unary;
+	private final int depth;
+	private final String literals[];
+	private final double comments;
+
+	private long written = 0;
+	private int variables = 0;
+	private int functions = 0;
+	private int loops = 0;
+
+	private GenerateCorpus(Writer writer, Options options) {
+		this.writer = writer;
+		this.random = new Random(options.seed);
+		this.size = options.size;
+		this.program = options.mode.equals("program");
+		this.unary = options.unary;
+		this.depth = options.depth;
+		this.literals = options.literals.split(",");
+		this.comments = options.comments;
+		this.operators = options.operators;
+		this.weights = options.weights;
+		this.totalWeight = options.totalWeight;
+		this.binaryWeight = options.binaryWeight;
+	}
+
+	public static void main(String args[]) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: generate_corpus <output file | -> [--size=N] [--mode=program|expression]"
+					+ " [--ops=+:4,-:2,*:2,/:1,==:1,<:1,and:1,?:1] [--unary=P] [--depth=N]"
+					+ " [--literals=int,double,string,bool,nil,ident] [--comments=P] [--seed=N]");
+			System.exit(64);
+		}
+
+		Options options = new Options();
+		for (int i = 1; i < args.length; i++) {
+			options.set(args[i]);
+		}
+		options.check();
+
+		Writer output = args[0].equals("-")
+				? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+				: Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8);
+
+		try (Writer writer = new BufferedWriter(output, 1 << 16)) {
+			new GenerateCorpus(writer, options).generate();
+		}
+	}
+
+	private void generate() throws IOException {
+		if (program) {
+			while (written < size) {
+				declaration();
+				emit("\n");
+			}
+		} else {
+			// a left-leaning chain keeps the parser's recursion shallow however big the file gets
+			expression(0);
+			while (written < size) {
+				emit(" ");
+				emit(pickOperator(false));
+				emit(" ");
+				expression(0);
+				comment(false);
+			}
+			emit("\n");
+		}
+	}
+
+	private void declaration() throws IOException {
+		comment(true);
+
+		int choice = random.nextInt(10);
+		if (choice < 3) {
+			emit("var v" + variables + " = ");
+			expression(0);
+			emit(";");
+			variables++;
+		} else if (choice < 5) {
+			emit("fun f" + functions++ + "(a, b) {\n");
+			emit("  if (");
+			expression(depth / 2);
+			emit(") {\n    return ");
+			expression(depth / 2);
+			emit(";\n  } else {\n    print ");
+			expression(depth / 2);
+			emit(";\n  }\n  return a;\n}");
+		} else if (choice < 6 && variables > 0) {
+			// the counter is checked first, so the loop ends whatever the generated condition does
+			String counter = "w" + loops++;
+			emit("{ var " + counter + " = 0; while (" + counter + " < " + (1 + random.nextInt(4)) + " and (");
+			expression(depth / 2);
+			emit(")) { v" + random.nextInt(variables) + " = ");
+			expression(depth / 2);
+			emit("; " + counter + " = " + counter + " + 1; } }");
+		} else {
+			emit("print ");
+			expression(0);
+			emit(";");
+		}
+	}
+
+	private void expression(int level) throws IOException {
+		if (level >= depth || random.nextInt(depth + 1) < level) {
+			operand();
+			return;
+		}
+
+		String operator = pickOperator(true);
+		if (operator.equals("?")) {
+			// conditional branches are bitwise expressions, so a nested one needs parens
+			emit("(");
+			expression(level + 1);
+			emit(" ? ");
+			expression(level + 1);
+			emit(" : ");
+			expression(level + 1);
+			emit(")");
+			return;
+		}
+
+		boolean group = random.nextInt(3) == 0;
+		if (group) emit("(");
+		expression(level + 1);
+		emit(" " + operator + " ");
+		comment(false);
+		expression(level + 1);
+		if (group) emit(")");
+	}
+
+	private void operand() throws IOException {
+		if (random.nextDouble() < unary) {
+			emit(random.nextBoolean() ? "-" : "!");
+		}
+
+		String literal = literals[random.nextInt(literals.length)];
+		switch (literal) {
+			case "int":
+				emit(Integer.toString(random.nextInt(10000)));
+				break;
+			case "double":
+				emit(random.nextInt(1000) + "." + random.nextInt(100));
+				break;
+			case "string":
+				emit("\"" + WORDS[random.nextInt(WORDS.length)] + "\"");
+				break;
+			case "bool":
+				emit(random.nextBoolean() ? "true" : "false");
+				break;
+			case "nil":
+				emit("nil");
+				break;
+			case "ident":
+				if (program && variables > 0) {
+					emit("v" + random.nextInt(variables));
+				} else {
+					emit(WORDS[random.nextInt(WORDS.length)]);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown literal type '" + literal + "'.");
+		}
+	}
+
+	private void comment(boolean line) throws IOException {
+		if (comments <= 0 || random.nextDouble() >= comments) return;
+
+		String text = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+		if (line) {
+			emit("// " + text + "\n");
+		} else {
+			emit("/* " + text + " */ ");
+		}
+	}
+
+	// Options.check makes sure there is something to pick for the mode
+	private String pickOperator(boolean conditional) {
+		int pick = random.nextInt(conditional ? totalWeight : binaryWeight);
+		int i = 0;
+		while (pick >= weight(i, conditional)) {
+			pick -= weight(i++, conditional);
+		}
+		return operators.get(i);
+	}
+
+	private int weight(int i, boolean conditional) {
+		return conditional || !operators.get(i).equals("?") ? weights.get(i) : 0;
+	}
+
+	private void emit(String text) throws IOException {
+		writer.write(text);
+		written += text.length();
+	}
+
+	private static class Options {
+		long size = 1 << 20;
+		String mode = "program";
+		String ops = "+:4,-:2,*:2,/:1,==:1,<:1,and:1,?:1";
+		double unary = 0.1;
+		int depth = 6;
+		String literals = "int,double,string,bool,nil,ident";
+		double comments = 0.05;
+		long seed = 42;
+
+		// the parsed --ops, filled in by check()
+		final List<String> operators = new ArrayList<>();
+		final List<Integer> weights = new ArrayList<>();
+		int totalWeight = 0;
+		int binaryWeight = 0;
+
+		void set(String arg) {
+			int equals = arg.indexOf('=');
+			if (!arg.startsWith("--") || equals < 0) {
+				throw new IllegalArgumentException("Expect option of the form --name=value, got '" + arg + "'.");
+			}
+
+			String name = arg.substring(2, equals);
+			String value = arg.substring(equals + 1);
+			switch (name) {
+				case "size": size = parseSize(value); break;
+				case "mode": mode = value; break;
+				case "ops": ops = value; break;
+				case "unary": unary = Double.parseDouble(value); break;
+				case "depth": depth = Integer.parseInt(value); break;
+				case "literals": literals = value; break;
+				case "comments": comments = Double.parseDouble(value); break;
+				case "seed": seed = Long.parseLong(value); break;
+				default:
+					throw new IllegalArgumentException("Unknown option '" + name + "'.");
+			}
+		}
+
+		// once all options are set; the chain in expression mode joins operands with binary operators,
+		// "?" cannot do that
+		void check() {
+			if (!mode.equals("program") && !mode.equals("expression")) {
+				throw new IllegalArgumentException("Unknown mode '" + mode + "'.");
+			}
+
+			for (String entry : ops.split(",")) {
+				String parts[] = entry.split(":");
+				int weight = weight(parts);
+				operators.add(parts[0]);
+				weights.add(weight);
+				totalWeight += weight;
+				if (!parts[0].equals("?")) binaryWeight += weight;
+			}
+
+			if (totalWeight == 0) {
+				throw new IllegalArgumentException("Expect at least one operator with a positive weight in '" + ops + "'.");
+			}
+			if (mode.equals("expression") && binaryWeight == 0) {
+				throw new IllegalArgumentException("Expect a binary operator other than '?' in '" + ops + "' for expression mode.");
+			}
+		}
+
+		private static int weight(String parts[]) {
+			if (parts.length > 2 || parts[0].isEmpty()) {
+				throw new IllegalArgumentException("Expect operator entries of the form OP:W, got '" + String.join(":", parts) + "'.");
+			}
+
+			int weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+			if (weight < 0) {
+				throw new IllegalArgumentException("Operator weight must not be negative, got " + weight + ".");
+			}
+			return weight;
+		}
+
+		private static long parseSize(String value) {
+			char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+			long scale = unit == 'k' ? 1L << 10 : unit == 'm' ? 1L << 20 : unit == 'g' ? 1L << 30 : 1;
+			if (scale > 1) value = value.substring(0, value.length() - 1);
+			return Long.parseLong(value) * scale;
+		}
+	}
+}